@@ -0,0 +1,115 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import solver.Configuration;
+import solver.Solver;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the operations every search calls for each state on its own, on a representative state of each puzzle:
+ *  the state halfway along the shortest path of an instance, so that it has the robots moved, towers fallen
+ *  or buckets filled that a search spends most of its time on. main() adds the GC profiler, whose
+ *  gc.alloc.rate.norm is the amount of bytes allocated per operation.
+ * @author Damon Gonzalez
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigurationBenchmark {
+    /** The instance the state is taken from, in the form Instances.load() reads */
+    @Param({"Clock 1000 42 722", "Water 42 70 39 1001", "TipOver tipover-9", "LunarLanding lula-a"})
+    public String instance;
+
+    /** The representative state */
+    private Configuration state;
+    /** A different object equal to state */
+    private Configuration equalState;
+    /** A neighbor of state, which is not equal to it */
+    private Configuration otherState;
+
+    /**
+     * Solves the instance once and picks the state halfway along the path. The equal copy is built the way a
+     * search would meet it again, as a neighbor of the state before it.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Configuration> path = new Solver().BFS(Instances.load(instance));
+        int middle = Math.max(1, path.size() / 2);
+        state = path.get(middle);
+        equalState = path.get(middle - 1).getNeighbors().stream().filter(state::equals).findFirst().orElseThrow();
+        otherState = state.getNeighbors().stream().filter(neighbor -> !neighbor.equals(state)).findFirst().orElseThrow();
+    }
+
+    /** Builds the list of neighbors */
+    @Benchmark
+    public List<Configuration> getNeighbors() { return state.getNeighbors(); }
+
+    /**
+     * Streams the neighbors without a list
+     * @param blackhole Consumes every neighbor so that none of them is optimized away
+     */
+    @Benchmark
+    public void forEachNeighbor(Blackhole blackhole){
+        state.forEachNeighbor(neighbor -> {
+            blackhole.consume(neighbor);
+            return true;
+        });
+    }
+
+    /**
+     * Hashes the state, done once for every state added to the visited set. TipOverConfig and LunarLandingConfig
+     * carry a Zobrist fingerprint that is updated as each neighbor is built, so for them this is a field read and
+     * their hashing cost is part of building the neighbors; compare hashNeighbors() with forEachNeighbor().
+     */
+    @Benchmark
+    public int hashCodeOf() { return state.hashCode(); }
+
+    /**
+     * Builds every neighbor and hands it to the blackhole, as forEachNeighbor() does, and also hashes each fresh one
+     *  the way the visited set does, so the difference between the two is the cost of hashing new states
+     * @param blackhole Consumes each neighbor and its hash code, so that none of them is optimized away
+     */
+    @Benchmark
+    public void hashNeighbors(Blackhole blackhole){
+        state.forEachNeighbor(neighbor -> {
+            blackhole.consume(neighbor);
+            blackhole.consume(neighbor.hashCode());
+            return true;
+        });
+    }
+
+    /** Compares the state to an equal one, what finding a duplicate costs */
+    @Benchmark
+    public boolean equalsEqual() { return state.equals(equalState); }
+
+    /** Compares the state to a different one, what a hash collision costs */
+    @Benchmark
+    public boolean equalsOther() { return state.equals(otherState); }
+
+    /** Renders the state, done for every step of a printed path */
+    @Benchmark
+    public String toStringOf() { return state.toString(); }
+
+    /**
+     * Runs this benchmark and UtilBenchmark with the GC profiler
+     * @param args Not used
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConfigurationBenchmark.class.getSimpleName())
+                .include(UtilBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import puzzles.clock.Clock;
+import puzzles.clock.ClockConfig;
+import puzzles.lunarlanding.model.LunarLandingConfig;
+import puzzles.tipover.model.TipOverConfig;
+import puzzles.water.Water;
+import puzzles.water.WaterConfig;
+import solver.Configuration;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The bundled puzzle instances the benchmarks run on. An instance is named by its puzzle followed by either
+ *  the program arguments of its run configuration in .idea/runConfigurations, for Clock and Water, or the
+ *  name of its file in data/, for TipOver and LunarLanding. Files are read relative to the working directory,
+ *  which has to be the project directory.
+ * @author Damon Gonzalez
+ */
+public final class Instances {
+    /** Private constructor, this class only has static members */
+    private Instances() {}
+
+    /**
+     * Builds the start Configuration of an instance, the same one the main method of its puzzle solves
+     * @param instance The name of the instance, e.g. "Water 42 70 39 1001" or "TipOver tipover-9"
+     * @return The start Configuration
+     */
+    public static Configuration load(String instance) throws IOException {
+        String[] args = instance.split(" ");
+        int[] numbers = args[0].equals("Clock") || args[0].equals("Water")
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray() : null;
+        return switch (args[0]) {
+            case "Clock" -> new ClockConfig(numbers[1], new Clock(numbers[0], numbers[1], numbers[2]));
+            case "Water" -> new WaterConfig(new int[numbers.length - 1],
+                    new Water(numbers[0], Arrays.copyOfRange(numbers, 1, numbers.length)));
+            case "TipOver" -> new TipOverConfig("data/tipover/" + args[1] + ".txt");
+            case "LunarLanding" -> new LunarLandingConfig("data/lunarlanding/" + args[1] + ".txt");
+            default -> throw new IllegalArgumentException("Unknown puzzle: " + args[0]);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import solver.Configuration;
+import solver.Solver;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves every bundled instance end to end with every engine of Solver.create(). Each solve is reported as
+ *  throughput and as average time, and main() adds the GC profiler, whose gc.alloc.rate.norm is the amount of
+ *  bytes allocated per solve. Run it from the project directory so that the data files are found, e.g. with
+ *  the SolveBenchmark run configuration; JMH options such as -p engine=bfs,encoded narrow the run down.
+ *  The memory of the external and bitstate engines, -Dsolver.memory, is sized to each instance, so that a solve
+ *  is not dominated by filling or allocating a buffer made for far larger puzzles.
+ * @author Damon Gonzalez
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolveBenchmark {
+    /** The instance being solved, in the form Instances.load() reads */
+    @Param({
+            "Clock 12 2 11", "Clock 12 2 15", "Clock 1000 42 722",
+            "Water 4 3 5", "Water 4 6 15", "Water 42 70 39 1001",
+            "TipOver tipover-0", "TipOver tipover-1", "TipOver tipover-2", "TipOver tipover-3",
+            "TipOver tipover-4", "TipOver tipover-5", "TipOver tipover-6", "TipOver tipover-7",
+            "TipOver tipover-8", "TipOver tipover-9", "TipOver tipover-a",
+            "LunarLanding lula-0", "LunarLanding lula-1", "LunarLanding lula-2", "LunarLanding lula-3",
+            "LunarLanding lula-4", "LunarLanding lula-5", "LunarLanding lula-6", "LunarLanding lula-7",
+            "LunarLanding lula-8", "LunarLanding lula-9", "LunarLanding lula-a"
+    })
+    public String instance;
+
+    /** The engine, a value of the solver.engine property */
+    @Param({"bfs", "parallel", "bidirectional", "astar", "encoded", "external", "bitstate"})
+    public String engine;
+
+    /** The start of the instance */
+    private Configuration start;
+    /** The solver of the engine */
+    private Solver solver;
+
+    /**
+     * Loads the instance and creates the solver once per trial. The instance is solved once with the plain BFS
+     * to size -Dsolver.memory: room for every generated state as a long, so that the external engine writes one
+     * run per level and the bitstate engine gets 64 bits per generated state, which keeps its omissions rare.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        start = Instances.load(instance);
+        Solver plain = new Solver();
+        plain.BFS(start);
+        System.setProperty("solver.memory", Long.toString(((long) plain.getTotalConfigs() * Long.BYTES >> 20) + 1));
+        System.setProperty("solver.engine", engine);
+        solver = Solver.create();
+    }
+
+    /**
+     * Solves the instance once. The last Configuration of the path is returned so that engines building their
+     * path lazily pay for building it, like a caller printing the path would.
+     * @return The solution, or null if there is none
+     */
+    @Benchmark
+    public Configuration solve(){
+        List<Configuration> path = solver.BFS(start);
+        return path.isEmpty() ? null : path.get(path.size() - 1);
+    }
+
+    /**
+     * Runs this benchmark with the GC profiler
+     * @param args Not used
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SolveBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
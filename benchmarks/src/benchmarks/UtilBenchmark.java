@@ -0,0 +1,67 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import puzzles.lunarlanding.model.LunarLandingConfig;
+import util.Coordinates;
+import util.Grid;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the util classes LunarLandingConfig is built on: Grid.hashCode() and Grid.equals() on the board of the
+ *  largest LunarLanding instance, and Coordinates.sum(), which is called for every square a robot slides over.
+ *  Run through ConfigurationBenchmark.main() to get the bytes allocated per operation.
+ * @author Damon Gonzalez
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilBenchmark {
+    /** The board of lula-a */
+    private Grid<Character> grid;
+    /** A copy of grid */
+    private Grid<Character> equalGrid;
+    /** A copy of grid with one robot moved */
+    private Grid<Character> otherGrid;
+    /** A location on the board */
+    private Coordinates location;
+    /** The step of a slide to the east */
+    private Coordinates delta;
+
+    /** Builds the boards from the robots of lula-a */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LunarLandingConfig config = (LunarLandingConfig) Instances.load("LunarLanding lula-a");
+        grid = new Grid<>('_', config.getHeight(), config.getLength());
+        for(Map.Entry<Character, Coordinates> robot : config.getRobotLocations().entrySet())
+            grid.set(robot.getKey(), robot.getValue());
+        equalGrid = new Grid<>(grid);
+        otherGrid = new Grid<>(grid);
+        Coordinates moved = config.getRobotLocations().values().iterator().next();
+        otherGrid.set('_', moved);
+        otherGrid.set(grid.get(moved), moved.row(), (moved.col() + 1) % config.getLength());
+        location = moved;
+        delta = Coordinates.Direction.EAST.coords;
+    }
+
+    /** Hashes the board */
+    @Benchmark
+    public int gridHashCode() { return grid.hashCode(); }
+
+    /** Compares the board to an equal copy, the full scan */
+    @Benchmark
+    public boolean gridEqualsEqual() { return grid.equals(equalGrid); }
+
+    /** Compares the board to one with a robot moved */
+    @Benchmark
+    public boolean gridEqualsOther() { return grid.equals(otherGrid); }
+
+    /** Takes one step, allocating a new Coordinates */
+    @Benchmark
+    public Coordinates coordinatesSum() { return location.sum(delta); }
+}
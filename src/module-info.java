@@ -7,6 +7,8 @@
  */
 module BFSPuzzles {
     requires transitive javafx.controls;
+    requires java.management;
+    requires jdk.unsupported;
     exports puzzles.tipover.gui;
     exports puzzles.lunarlanding.gui;
 }
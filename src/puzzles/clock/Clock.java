@@ -41,11 +41,11 @@ public class Clock {
     private void solve(){
         System.out.println("Hours: " + hours + ", Start: " + start + ", End: " + end);
         Configuration startConfig = new ClockConfig(start, this);
-        Solver solver = new Solver();
+        Solver solver = Solver.create();
         List<Configuration> path = solver.BFS(startConfig);
         System.out.println("Total Configs: " + solver.getTotalConfigs());
         System.out.println("Unique Configs: " + solver.getUniqueConfigs());
-        if(path.size() == 0) System.out.println("No solution");
+        if(path.size() == 0) System.out.println(solver.isSolvable() ? "Solvable, no path was kept" : "No solution");
         for(int i = 0; i < path.size(); i++)
             System.out.println("Step " + i + ": " + path.get(i));
     }
@@ -1,6 +1,7 @@
 package puzzles.clock;
 
 import solver.Configuration;
+import solver.SearchDomain;
 
 import java.util.*;
 
@@ -50,6 +51,63 @@ public class ClockConfig implements Configuration {
         return new ArrayList<>(Arrays.asList(new ClockConfig(leftHour, puzzle), new ClockConfig(rightHour, puzzle)));
     }
 
+    /**
+     * Streams the same two neighbors as getNeighbors() without building a list
+     * @param visitor Called with each neighbor, returns false to stop
+     * @return True if both neighbors were visited
+     */
+    @Override
+    public boolean forEachNeighbor(Visitor visitor) {
+        int hours = puzzle.getHours();
+        return visitor.visit(new ClockConfig(hour == 1 ? hours : hour - 1, puzzle))
+                && visitor.visit(new ClockConfig(hour == hours ? 1 : hour + 1, puzzle));
+    }
+
+    /**
+     * A Clock puzzle is solved by exactly one hour, the puzzle's end
+     * @return A ClockConfig at the end hour
+     */
+    @Override
+    public Configuration getGoalConfig() {
+        return new ClockConfig(puzzle.getSolution(), puzzle);
+    }
+
+    /**
+     * Turning the hand is reversible, so the predecessors of a ClockConfig are its neighbors
+     * @return The same list getNeighbors() returns
+     */
+    @Override
+    public List<Configuration> getPredecessors() {
+        return getNeighbors();
+    }
+
+    /**
+     * The hand moves one hour per step, so the distance is the shorter way around the clock to the end.
+     *  An end that is not on the clock is never reached, and 0 is the only estimate that stays valid for A*.
+     * @return The amount of steps left if nothing goes wrong
+     */
+    @Override
+    public int estimateDistance() {
+        if(puzzle.getSolution() < 1 || puzzle.getSolution() > puzzle.getHours()) return 0;
+        int distance = Math.abs(hour - puzzle.getSolution());
+        return Math.min(distance, puzzle.getHours() - distance);
+    }
+
+    /**
+     * A ClockConfig is already just an int, so it encodes as its hour
+     * @return A ClockDomain starting from this hour
+     */
+    @Override
+    public SearchDomain getSearchDomain() {
+        return new ClockDomain(puzzle, hour);
+    }
+
+    /**
+     * Package private getter for the hour, used by ClockDomain to encode this config
+     * @return The hour the hand points at
+     */
+    int getHour() { return hour; }
+
     /**
      * Implemented so that ClockConfigs can be uniquely hashable in a HashMap
      * @param other The object being compared
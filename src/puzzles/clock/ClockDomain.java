@@ -0,0 +1,58 @@
+package puzzles.clock;
+
+import solver.Configuration;
+import solver.SearchDomain;
+
+import java.util.function.LongConsumer;
+
+/**
+ * SearchDomain for the clock puzzle, a state is simply the hour the hand points at. The default labels already
+ *  fit, move 0 turns the hand back one hour and move 1 forward one hour.
+ * @author Damon Gonzalez
+ */
+public class ClockDomain implements SearchDomain {
+    /** The puzzle being solved */
+    private final Clock puzzle;
+    /** The hour the search starts from */
+    private final int start;
+
+    /**
+     * Public constructor for a ClockDomain
+     * @param puzzle The puzzle being solved
+     * @param start The hour the search starts from
+     */
+    public ClockDomain(Clock puzzle, int start){
+        this.puzzle = puzzle;
+        this.start = start;
+    }
+
+    @Override
+    public long getStart() { return start; }
+
+    @Override
+    public boolean isSolution(long state) { return state == puzzle.getSolution(); }
+
+    /**
+     * The same two neighbors as ClockConfig.getNeighbors(), one hour back and one hour forward
+     * @param state The hour
+     * @param action Called with each neighbor
+     */
+    @Override
+    public void forEachNeighbor(long state, LongConsumer action){
+        int hours = puzzle.getHours();
+        action.accept(state == 1 ? hours : state - 1);
+        action.accept(state == hours ? 1 : state + 1);
+    }
+
+    @Override
+    public String describeMove(int move) { return move == 0 ? "back" : "forward"; }
+
+    @Override
+    public int getStateBytes() { return SearchDomain.bytesFor(Integer.SIZE - Integer.numberOfLeadingZeros(puzzle.getHours())); }
+
+    @Override
+    public Configuration decode(long state) { return new ClockConfig((int) state, puzzle); }
+
+    @Override
+    public long encode(Configuration config) { return ((ClockConfig) config).getHour(); }
+}
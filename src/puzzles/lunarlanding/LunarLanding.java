@@ -40,8 +40,11 @@ public class LunarLanding {
         if (args.length == 1){
             String fileName = args[0];
             LunarLanding l = new LunarLanding(fileName);
-            Solver s = new Solver();
+            Solver s = Solver.create();
             List<Configuration> path = s.BFS(l.lunarLandingConfiguration);
+            if (LunarLandingConfig.CANONICAL){ //Show the helpers with the letters of the file
+                path = Configuration.relabel(path);
+            }
             for(int i = 0; i < path.size(); i++){
                 System.out.println("Step " + i + ":");
                 LunarLandingConfig LLC = (LunarLandingConfig) path.get(i);
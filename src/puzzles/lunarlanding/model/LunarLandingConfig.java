@@ -3,6 +3,8 @@ package puzzles.lunarlanding.model;
 import puzzles.clock.ClockConfig;
 import puzzles.lunarlanding.LunarLanding;
 import solver.Configuration;
+import solver.SearchDomain;
+import solver.Zobrist;
 import util.Coordinates;
 import util.Grid;
 import util.Coordinates.Direction;
@@ -14,11 +16,26 @@ import java.util.*;
 /**
  * The lunarLandingConfig represents and manipulates a board
  * for the game of LunarLanding
+ * Each config carries a Zobrist fingerprint of which robot stands on which square, updated with each move, that
+ * is its hash code and lets equals() tell most boards apart with one comparison. In canonical mode every helper
+ * has the same keys, so boards that only differ in which helper stands where have the same fingerprint.
  * @author George Banacos
  * November 2021
  */
 public class LunarLandingConfig implements Configuration {
 
+    /**
+     * True to treat the helper robots, every robot but the explorer, as interchangeable, set with
+     * -Dlunarlanding.canonical. Helpers only ever block, so two boards that differ only in which helper
+     * stands where are the same state, and a search sees each such state once
+     */
+    public static final boolean CANONICAL = Boolean.getBoolean("lunarlanding.canonical");
+
+    /**
+     * The collision counters of the fingerprints
+     */
+    private static final Zobrist FINGERPRINTS = Zobrist.of(LunarLandingConfig.class);
+
     /**
      * A blank character
      */
@@ -40,6 +57,17 @@ public class LunarLandingConfig implements Configuration {
      */
     private Grid<Character> board;
 
+    /**
+     * The state in canonical mode, the square of the explorer followed by the squares of the helpers in
+     * increasing order, or null until it is needed
+     */
+    private int[] canonicalSquares = null;
+
+    /**
+     * The Zobrist fingerprint of the robots and their squares
+     */
+    private long fingerprint;
+
     /**
      * LunarLandingConfig is the constructor which takes a file name and
      * creates a boards and initializes everything else associated with the board
@@ -58,6 +86,7 @@ public class LunarLandingConfig implements Configuration {
                 board.set(robotArgs[0].charAt(0), c); //Put the robots on the board
                 robotLocations.put(robotArgs[0].charAt(0), c); //Put the robots in the hashmap
             }
+            fingerprint = fingerprint(robotLocations);
         }catch(IOException e){
             System.out.println("File could not be opened");
             throw new FileNotFoundException("sadf");
@@ -78,6 +107,24 @@ public class LunarLandingConfig implements Configuration {
         this.board = board;
         this.goalSpot = l.goalSpot;
         this.robotLocations = robotLocations;
+        this.fingerprint = fingerprint(robotLocations);
+    }
+
+    /**
+     * A copy constructor for a neighbor, whose fingerprint was updated from the one of the original config
+     * @param l: the original lunar landing config
+     * @param robotLocations: the locations of the robots on the board
+     * @param fingerprint: the fingerprint of the robot locations
+     */
+    private LunarLandingConfig(LunarLandingConfig l, HashMap<Character, Coordinates> robotLocations, long fingerprint){
+        Grid<Character> board = new Grid<Character>(blank, l.board.getNRows(), l.board.getNCols());
+        for(Character c : robotLocations.keySet()){ //Put the robots on the board
+            board.set(c, robotLocations.get(c));
+        }
+        this.board = board;
+        this.goalSpot = l.goalSpot;
+        this.robotLocations = robotLocations;
+        this.fingerprint = fingerprint;
     }
 
     /**
@@ -99,6 +146,8 @@ public class LunarLandingConfig implements Configuration {
             robotLocations.put(robot, newCoords);
             board.set(blank, coords);
             board.set(robot, newCoords);
+            canonicalSquares = null;
+            fingerprint ^= key(robot, coords) ^ key(robot, newCoords);
             return newCoords;
         }
     }
@@ -132,6 +181,17 @@ public class LunarLandingConfig implements Configuration {
     @Override
     public List<Configuration> getNeighbors() {
         ArrayList<Configuration> neighbors = new ArrayList<>();
+        forEachNeighbor(neighbors::add);
+        return neighbors;
+    }
+
+    /**
+     * Gives each neighbor of the current configuration to a visitor without building a list
+     * @param visitor: called with each neighbor, returns false to stop
+     * @return true if every neighbor was visited, false if the visitor stopped early
+     */
+    @Override
+    public boolean forEachNeighbor(Visitor visitor) {
         for (Character robot : robotLocations.keySet()) { //For each robot on the board
             Coordinates currentRobot = robotLocations.get(robot);
             for (Direction d : Coordinates.CARDINAL_NEIGHBORS) { //For N, E, S, W
@@ -148,12 +208,65 @@ public class LunarLandingConfig implements Configuration {
                         newLocations.put(c, robotLocations.get(c));
                         newLocations.put(robot, movedPiece);
                     }
-                    Configuration neighbor = new LunarLandingConfig(this, newLocations );//Get the neighbor
-                    neighbors.add(neighbor); //Add the neighbor
+                    Configuration neighbor = new LunarLandingConfig(this, newLocations,
+                            fingerprint ^ key(robot, currentRobot) ^ key(robot, movedPiece));//Get the neighbor
+                    if (!visitor.visit(neighbor)){ //Stop if the visitor is done
+                        return false;
+                    }
                 }
             }
         }
-        return neighbors;
+        return true;
+    }
+
+    /**
+     * Replays a move labelled by LunarLandingDomain.forEachMove(), the robot's letter and a direction of
+     * Coordinates.CARDINAL_NEIGHBORS. In canonical mode the robot is given by its place in the canonical
+     * order instead, the explorer first and then the helpers by square, since the letters are not part of the
+     * state. The move is assumed to be valid.
+     * @param move: the label of the move, (letter - 'A') * 4 + direction, or (place * 4) + direction in canonical mode
+     * @return the configuration the move leads to
+     */
+    @Override
+    public Configuration applyMove(int move) {
+        Character robot = CANONICAL ? canonicalRobots()[move / 4] : (char) ('A' + move / 4);
+        Coordinates movedPiece = movePiece(robotLocations.get(robot), Coordinates.CARDINAL_NEIGHBORS[move % 4].coords);
+        HashMap<Character, Coordinates> newLocations = new HashMap<>(); //Built like getNeighbors so the order matches
+        for (Character c : robotLocations.keySet()){
+            newLocations.put(c, robotLocations.get(c));
+        }
+        newLocations.put(robot, movedPiece);
+        return new LunarLandingConfig(this, newLocations,
+                fingerprint ^ key(robot, robotLocations.get(robot)) ^ key(robot, movedPiece));
+    }
+
+    /**
+     * Estimates how many moves are left. The explorer can only land on the goal by sliding along the goal's
+     * row or column, so it needs at least one move if it is already in line with the goal and two otherwise
+     * @return 0 if this is the solution, 1 if the explorer is in line with the goal, 2 otherwise
+     */
+    @Override
+    public int estimateDistance() {
+        if (isSolution()){
+            return 0;
+        }
+        Coordinates explorer = robotLocations.get('E');
+        if (explorer != null && (explorer.row() == goalSpot.row() || explorer.col() == goalSpot.col())){
+            return 1;
+        }
+        return 2;
+    }
+
+    /**
+     * Gets a SearchDomain that packs the squares of the robots into a long
+     * @return a LunarLandingDomain starting from this configuration, or null if the robots do not fit
+     */
+    @Override
+    public SearchDomain getSearchDomain() {
+        if (!LunarLandingDomain.canEncode(this)){
+            return null;
+        }
+        return new LunarLandingDomain(this);
     }
 
     /**
@@ -193,30 +306,120 @@ public class LunarLandingConfig implements Configuration {
     }
 
     /**
-     * Check to see if two configurations are equal based on the location of the robots
+     * Check to see if two configurations are equal based on the location of the robots. In canonical mode
+     * only the explorer and the set of squares the helpers stand on are compared. Configurations with different
+     * fingerprints are never equal, so the robots are only compared when the fingerprints are equal
      * @param other: the other configuration
      * @return true if they are equal, false otherwise
      */
     @Override
     public boolean equals(Object other){
-        if(other instanceof LunarLandingConfig otherConfig) {
+        if(!(other instanceof LunarLandingConfig otherConfig)){
+            return false;
+        }
+        if (fingerprint != otherConfig.fingerprint){
+            if (hashCode() == otherConfig.hashCode()){
+                FINGERPRINTS.countHashCollision();
+            }
+            return false;
+        }
+        boolean equal = true;
+        if(CANONICAL) {
+            equal = Arrays.equals(canonicalSquares(), otherConfig.canonicalSquares());
+        }
+        else {
             for (Character c : robotLocations.keySet()) {
                 if(!otherConfig.robotLocations.get(c).equals(this.robotLocations.get(c))){
-                    return false;
+                    equal = false;
+                    break;
                 }
             }
-            return true;
         }
-        return false;
+        if (!equal){
+            FINGERPRINTS.countFingerprintCollision();
+        }
+        return equal;
     }
 
     /**
-     * Hash code based on the board
+     * Hash code based on the fingerprint, which in canonical mode does not tell the helpers apart
      * @return an int
      */
     @Override
     public int hashCode(){
-        return this.board.hashCode();
+        return Long.hashCode(fingerprint);
+    }
+
+    /**
+     * Computes the fingerprint of a board from scratch
+     * @param robotLocations: the locations of the robots
+     * @return the xor of the keys of every robot on its square
+     */
+    private long fingerprint(Map<Character, Coordinates> robotLocations){
+        long fingerprint = 0;
+        for (Map.Entry<Character, Coordinates> robot : robotLocations.entrySet()){
+            fingerprint ^= key(robot.getKey(), robot.getValue());
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Gets the Zobrist key of a robot standing on a square. In canonical mode every helper has the same keys
+     * @param robot: the letter of the robot
+     * @param c: the coordinates of the square
+     * @return the key
+     */
+    private long key(char robot, Coordinates c){
+        long letter = CANONICAL && robot != 'E' ? 0 : robot;
+        return Zobrist.key(letter << 32 | square(c));
+    }
+
+    /**
+     * Gets the robots in canonical order, the explorer first if there is one and then the helpers by
+     * increasing square
+     * @return the letters of the robots
+     */
+    char[] canonicalRobots(){
+        Character[] robots = robotLocations.keySet().toArray(new Character[0]);
+        Arrays.sort(robots, Comparator.comparing((Character robot) -> robot != 'E')
+                .thenComparing(robot -> square(robotLocations.get(robot))));
+        char[] letters = new char[robots.length];
+        for (int i = 0; i < robots.length; i++){
+            letters[i] = robots[i];
+        }
+        return letters;
+    }
+
+    /**
+     * Gets the canonical state, computed once per board
+     * @return the square of the explorer, or -1 if there is none, followed by the sorted squares of the helpers
+     */
+    private int[] canonicalSquares(){
+        if (canonicalSquares == null){
+            int[] squares = new int[robotLocations.size() + 1];
+            squares[0] = -1;
+            int helpers = 1;
+            for (Map.Entry<Character, Coordinates> robot : robotLocations.entrySet()){
+                if (robot.getKey() == 'E'){
+                    squares[0] = square(robot.getValue());
+                }
+                else{
+                    squares[helpers++] = square(robot.getValue());
+                }
+            }
+            Arrays.sort(squares, 1, helpers);
+            canonicalSquares = Arrays.copyOf(squares, helpers);
+        }
+        return canonicalSquares;
+    }
+
+    /**
+     * Gets the index of a square, counted row by row
+     * @param c: the coordinates of the square
+     * @return the index
+     */
+    private int square(Coordinates c){
+        return c.row() * board.getNCols() + c.col();
     }
 
     /**
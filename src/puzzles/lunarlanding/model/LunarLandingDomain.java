@@ -0,0 +1,346 @@
+package puzzles.lunarlanding.model;
+
+import solver.Configuration;
+import solver.SearchDomain;
+import util.Coordinates;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * SearchDomain for the LunarLanding puzzle. The board only holds robots, so a state is the square index of every
+ * robot, packed one after another into a long in the order the start configuration lists its robots. A move is
+ * labelled by the robot's letter and the index of the direction in Coordinates.CARDINAL_NEIGHBORS, as
+ * (letter - 'A') * 4 + direction.
+ * In canonical mode, see LunarLandingConfig.CANONICAL, the explorer is packed first and the squares of the helpers
+ * after it in increasing order, so every board that only differs in which helper stands where has the same code.
+ * A move is then labelled by the place of the robot in that order instead of its letter, (place * 4) + direction.
+ * Slides are resolved on bitboards: while a state is expanded every row and every column keeps a mask of the
+ * robots on it, and the squares beyond each square in each direction are precomputed as a ray mask, so the
+ * robot a slide stops at is the nearest set bit of the mask and the ray, found without walking the board.
+ * @author George Banacos
+ * November 2021
+ */
+public class LunarLandingDomain implements SearchDomain {
+
+    /**
+     * The configuration the search starts from, used as the template for decoded configurations
+     */
+    private final LunarLandingConfig startConfig;
+
+    /**
+     * The letter of each robot, in the order they are packed
+     */
+    private final char[] robots;
+
+    /**
+     * The index of the explorer in robots, or -1 if there is no explorer
+     */
+    private final int explorer;
+
+    /**
+     * The amount of bits used for each robot
+     */
+    private final int squareBits;
+
+    /**
+     * The size of the board
+     */
+    private final int rows, cols;
+
+    /**
+     * The square the explorer has to reach
+     */
+    private final int goalSquare;
+
+    /**
+     * Scratch space for the squares of the robots of the state being expanded
+     */
+    private final int[] squares;
+
+    /**
+     * The robots on each row of the state being expanded, bit c is set if a robot is on column c
+     */
+    private final long[] rowMasks;
+
+    /**
+     * The robots on each column of the state being expanded, bit r is set if a robot is on row r
+     */
+    private final long[] colMasks;
+
+    /**
+     * For each direction of Coordinates.CARDINAL_NEIGHBORS and each square, the squares a robot passes over when
+     * it slides that way, as bits of the column mask for north and south and of the row mask for east and west
+     */
+    private final long[][] rays;
+
+    /**
+     * Scratch space for the squares of the helpers of the state being put in canonical order
+     */
+    private final int[] helperSquares;
+
+    /**
+     * True if the squares of the helpers are kept in increasing order, see LunarLandingConfig.CANONICAL
+     */
+    private final boolean canonical = LunarLandingConfig.CANONICAL;
+
+    /**
+     * The code of the start state
+     */
+    private final long start;
+
+    /**
+     * Constructs a LunarLandingDomain, only valid if canEncode is true for the configuration
+     * @param startConfig: the configuration the search starts from
+     */
+    public LunarLandingDomain(LunarLandingConfig startConfig){
+        this.startConfig = startConfig;
+        this.rows = startConfig.getHeight();
+        this.cols = startConfig.getLength();
+        this.squareBits = squareBits(rows * cols);
+        this.goalSquare = startConfig.getGoal().row() * cols + startConfig.getGoal().col();
+        this.robots = new char[startConfig.getRobotLocations().size()];
+        this.squares = new int[robots.length];
+        this.helperSquares = new int[robots.length];
+        this.rowMasks = new long[rows];
+        this.colMasks = new long[cols];
+        this.rays = new long[Coordinates.CARDINAL_NEIGHBORS.length][rows * cols];
+        long allRows = rows == Long.SIZE ? -1 : (1L << rows) - 1;
+        long allCols = cols == Long.SIZE ? -1 : (1L << cols) - 1;
+        for (int square = 0; square < rows * cols; square++){
+            int row = square / cols;
+            int col = square % cols;
+            rays[0][square] = (1L << row) - 1; //North, the rows above
+            rays[1][square] = allCols & ~((2L << col) - 1); //East, the columns to the right
+            rays[2][square] = allRows & ~((2L << row) - 1); //South, the rows below
+            rays[3][square] = (1L << col) - 1; //West, the columns to the left
+        }
+        int index = 0;
+        int explorerIndex = -1;
+        for (Character robot : startConfig.getRobotLocations().keySet()){ //Same order getNeighbors uses
+            robots[index] = robot;
+            if (robot == 'E'){
+                explorerIndex = index;
+            }
+            index++;
+        }
+        if (canonical && explorerIndex > 0){ //The explorer goes first, ahead of the helpers
+            System.arraycopy(robots, 0, robots, 1, explorerIndex);
+            robots[0] = 'E';
+            explorerIndex = 0;
+        }
+        this.explorer = explorerIndex;
+        this.start = encode(startConfig);
+    }
+
+    /**
+     * Checks if every robot's square fits into a long and every move into a byte
+     * @param config: the configuration
+     * @return true if the squares of all robots fit into 64 bits, every robot is a letter from A to Z and no side
+     * of the board is longer than 64, so that a row or a column fits into a mask
+     */
+    public static boolean canEncode(LunarLandingConfig config){
+        if (config.getHeight() > Long.SIZE || config.getLength() > Long.SIZE){
+            return false;
+        }
+        for (Character robot : config.getRobotLocations().keySet()){
+            if (robot < 'A' || robot > 'Z'){
+                return false;
+            }
+        }
+        return squareBits(config.getHeight() * config.getLength()) * config.getRobotLocations().size() <= Long.SIZE;
+    }
+
+    @Override
+    public long getStart(){
+        return start;
+    }
+
+    @Override
+    public boolean isSolution(long state){
+        return explorer != -1 && square(state, explorer) == goalSquare;
+    }
+
+    /**
+     * Generates the same neighbors, in the same order, as LunarLandingConfig.getNeighbors(). In canonical mode
+     * the robots are taken in canonical order instead
+     * @param state: the encoded state
+     * @param action: called with each neighbor
+     */
+    @Override
+    public void forEachNeighbor(long state, LongConsumer action){
+        expand(state, action, null);
+    }
+
+    /**
+     * Generates the same neighbors, in the same order, as LunarLandingConfig.getNeighbors(), each labelled by the
+     * robot that moved and its direction
+     * @param state: the encoded state
+     * @param action: called with each neighbor and its move
+     */
+    @Override
+    public void forEachMove(long state, MoveConsumer action){
+        expand(state, null, action);
+    }
+
+    /**
+     * Generates the neighbors of a state without allocating, for forEachNeighbor and forEachMove
+     * @param state: the encoded state
+     * @param plain: called with each neighbor, or null
+     * @param labelled: called with each neighbor and its move, or null
+     */
+    private void expand(long state, LongConsumer plain, MoveConsumer labelled){
+        for (int robot = 0; robot < robots.length; robot++){ //Put the robots on the bitboards
+            squares[robot] = square(state, robot);
+            rowMasks[squares[robot] / cols] |= 1L << (squares[robot] % cols);
+            colMasks[squares[robot] % cols] |= 1L << (squares[robot] / cols);
+        }
+        try {
+            for (int robot = 0; robot < robots.length; robot++){ //For each robot on the board
+                for (int d = 0; d < Coordinates.CARDINAL_NEIGHBORS.length; d++){ //For N, E, S, W
+                    int moved = slide(squares[robot], d);
+                    if (moved != -1 && moved != squares[robot]){ //If the piece moved and it is valid
+                        int shift = robot * squareBits;
+                        long neighbor = (state & ~(((1L << squareBits) - 1) << shift)) | ((long) moved << shift);
+                        if (canonical){
+                            neighbor = canonicalize(neighbor);
+                        }
+                        if (plain != null){
+                            plain.accept(neighbor);
+                        }
+                        else{
+                            labelled.accept(neighbor, canonical ? robot * 4 + d : (robots[robot] - 'A') * 4 + d);
+                        }
+                    }
+                }
+            }
+        }finally{
+            for (int square : squares){ //Clear the bitboards for the next state
+                rowMasks[square / cols] = 0;
+                colMasks[square % cols] = 0;
+            }
+        }
+    }
+
+    @Override
+    public String describeMove(int move){
+        String direction = Coordinates.CARDINAL_NEIGHBORS[move % 4].name().toLowerCase();
+        if (!canonical){
+            return (char) ('A' + move / 4) + " " + direction;
+        }
+        if (move / 4 == explorer){
+            return "E " + direction;
+        }
+        return "helper " + (move / 4 - firstHelper() + 1) + " " + direction;
+    }
+
+    @Override
+    public long getEncodingId(){
+        return canonical ? 1 : 0;
+    }
+
+    @Override
+    public int getStateBytes(){
+        return SearchDomain.bytesFor((long) squareBits * robots.length);
+    }
+
+    @Override
+    public Configuration decode(long state){
+        HashMap<Character, Coordinates> locations = new HashMap<>();
+        for (int robot = 0; robot < robots.length; robot++){
+            int square = square(state, robot);
+            locations.put(robots[robot], new Coordinates(square / cols, square % cols));
+        }
+        return new LunarLandingConfig(startConfig, locations);
+    }
+
+    @Override
+    public long encode(Configuration config){
+        Map<Character, Coordinates> locations = ((LunarLandingConfig) config).getRobotLocations();
+        long code = 0;
+        for (int robot = 0; robot < robots.length; robot++){
+            Coordinates c = locations.get(robots[robot]);
+            code |= (long) (c.row() * cols + c.col()) << (robot * squareBits);
+        }
+        return canonical ? canonicalize(code) : code;
+    }
+
+    /**
+     * Puts the squares of the helpers of a state in increasing order
+     * @param state: the encoded state
+     * @return the canonical code of the state
+     */
+    private long canonicalize(long state){
+        int from = firstHelper();
+        int count = robots.length - from;
+        for (int i = 0; i < count; i++){ //Insertion sort, there are only a few helpers
+            int square = square(state, from + i);
+            int j = i;
+            while (j > 0 && helperSquares[j - 1] > square){
+                helperSquares[j] = helperSquares[j - 1];
+                j--;
+            }
+            helperSquares[j] = square;
+        }
+        long mask = from == 0 ? 0 : (1L << (from * squareBits)) - 1;
+        long code = state & mask;
+        for (int i = 0; i < count; i++){
+            code |= (long) helperSquares[i] << ((from + i) * squareBits);
+        }
+        return code;
+    }
+
+    /**
+     * Gets the index of the first helper in robots
+     * @return 1 if the explorer is packed first, 0 if there is no explorer
+     */
+    private int firstHelper(){
+        return explorer == 0 ? 1 : 0;
+    }
+
+    /**
+     * Slides a robot until it hits another robot, using the bitboards of the state being expanded
+     * @param from: the square the robot starts at
+     * @param direction: the index of the direction in Coordinates.CARDINAL_NEIGHBORS
+     * @return the square the robot stops at, or -1 if it would slide off the board
+     */
+    private int slide(int from, int direction){
+        int row = from / cols;
+        int col = from % cols;
+        boolean vertical = direction % 2 == 0;
+        long blockers = (vertical ? colMasks[col] : rowMasks[row]) & rays[direction][from];
+        if (blockers == 0){ //Nothing to stop the robot
+            return -1;
+        }
+        if (direction == 0){
+            return (Long.SIZE - Long.numberOfLeadingZeros(blockers)) * cols + col; //Below the nearest robot above
+        }
+        if (direction == 1){
+            return row * cols + Long.numberOfTrailingZeros(blockers) - 1; //Left of the nearest robot to the right
+        }
+        if (direction == 2){
+            return (Long.numberOfTrailingZeros(blockers) - 1) * cols + col; //Above the nearest robot below
+        }
+        return row * cols + Long.SIZE - Long.numberOfLeadingZeros(blockers); //Right of the nearest robot to the left
+    }
+
+    /**
+     * Gets the square of one robot
+     * @param state: the encoded state
+     * @param robot: the index of the robot
+     * @return the square index of the robot
+     */
+    private int square(long state, int robot){
+        return (int) ((state >>> (robot * squareBits)) & ((1L << squareBits) - 1));
+    }
+
+    /**
+     * Gets the amount of bits needed for the index of any square
+     * @param squares: the amount of squares on the board
+     * @return the amount of bits
+     */
+    private static int squareBits(int squares){
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(squares - 1));
+    }
+}
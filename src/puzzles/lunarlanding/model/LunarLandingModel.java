@@ -1,11 +1,18 @@
 package puzzles.lunarlanding.model;
 
 import solver.Configuration;
+import solver.DistanceOracle;
+import solver.SearchDomain;
+import solver.SolutionCache;
+import solver.SolveOptions;
+import solver.SolveStatus;
 import solver.Solver;
 import util.Coordinates;
 import util.Observer;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -38,7 +45,24 @@ public class LunarLandingModel{
     /**
      * The solver that can solve the puzzle using BFS
      */
-    private static Solver s = new Solver();
+    private static Solver s = Solver.create();
+    /**
+     * The limits of the search behind a hint, so that a hard board can not freeze the user interface
+     */
+    private static final SolveOptions HINT_LIMITS = new SolveOptions(Long.getLong("solver.hintMillis", 2000),
+            Long.getLong("solver.hintStates", 1_000_000), null);
+    /**
+     * The SearchDomain of the current board, used to encode states for the SolutionCache, null if it has none
+     */
+    private volatile SearchDomain domain;
+    /**
+     * The identity of the current board in the SolutionCache
+     */
+    private long puzzleId;
+    /**
+     * The distance of every state of the current board to the goal, null until it is built or if it can not be
+     */
+    private volatile DistanceOracle oracle;
     /**
      * The name of the last file opened
      */
@@ -65,6 +89,7 @@ public class LunarLandingModel{
         try {
             config = new LunarLandingConfig(currentFile);
             latestFile = currentFile;
+            loadOracle();
             announce("show");
             announce("loaded");
         }catch (FileNotFoundException e){
@@ -73,6 +98,37 @@ public class LunarLandingModel{
         }
     }
 
+    /**
+     * Starts loading or building the distance table of the current board, kept next to its file as a .dist file.
+     * It is done in the background so that loading a board does not block the user interface, and getHint()
+     * searches as usual until the table is ready. Boards with more states than -Dsolver.oracleStates, 1000000 by
+     * default, get no table. Also finds the identity of the board in the SolutionCache.
+     */
+    private void loadOracle(){
+        oracle = null;
+        domain = config.getSearchDomain();
+        if (domain == null){
+            return;
+        }
+        try {
+            puzzleId = SolutionCache.puzzleId(domain, Path.of(currentFile));
+        }catch (IOException e){
+            domain = null;
+            return;
+        }
+        SearchDomain loaded = domain;
+        String file = currentFile;
+        DistanceOracle.forPuzzleAsync(config.getSearchDomain(), Path.of(file),
+                Integer.getInteger("solver.oracleStates", 1_000_000)).whenComplete((built, failure) -> {
+            if (failure != null){
+                System.out.println("Unable to build distances for:" + file);
+            }
+            else if (domain == loaded){
+                oracle = built;
+            }
+        });
+    }
+
     /**
      * Loads a file describing a LunarLanding board
      * @param fileName: The name of the file being loaded
@@ -143,27 +199,93 @@ public class LunarLandingModel{
     }
 
     /**
-     * Gets the next hint toward the goal. A solver is called on the config which
+     * Gets the next hint toward the goal. The next step is looked up in the distance table
+     * of the board when there is one, and then in the SolutionCache. Otherwise a solver is called on the config which
      * does a BFS search to find the path to the goal. Even if the user makes a
      * change to the state of the board the getHint will use the current board
-     * state as a start of the path.
+     * state as a start of the path. The search is bounded by HINT_LIMITS, set with
+     * -Dsolver.hintMillis and -Dsolver.hintStates, and the board is left alone if it gives up.
+     * A finished search is stored in the cache, every board along its path included.
      */
     public void getHint(){
+        if (oracle != null){
+            int distance = oracle.distance(config);
+            if (distance == 0){
+                announce("Current board is already solved");
+                return;
+            }
+            if (distance == DistanceOracle.UNSOLVABLE){
+                announce("Unsolvable board");
+                return;
+            }
+            Configuration next = oracle.nextStep(config);
+            if (next != null){
+                showHint((LunarLandingConfig) next);
+                return;
+            }
+        }
+        SolutionCache.Entry cached = null;
+        if (domain != null){
+            cached = SolutionCache.getDefault().get(puzzleId, domain.encode(config));
+        }
+        if (cached != null){
+            if (cached.getDistance() == 0){
+                announce("Current board is already solved");
+            }
+            else if (cached.getDistance() == SolutionCache.UNSOLVABLE){
+                announce("Unsolvable board");
+            }
+            else{
+                showHint((LunarLandingConfig) domain.decode(cached.getNext()));
+            }
+            return;
+        }
         List<Configuration> steps;
+        s.setOptions(HINT_LIMITS);
         steps = s.BFS(config);
-        if(steps.size() == 0){
-            announce("Unsolvable board");
+        if (domain != null && s.isExact() && steps.size() > 0){
+            SolutionCache.getDefault().putPath(puzzleId, domain, steps);
+        }
+        else if (domain != null && s.isExact() && s.getStatus() == SolveStatus.NO_SOLUTION){
+            SolutionCache.getDefault().putUnsolvable(puzzleId, domain.encode(config));
+        }
+        if(!s.getStatus().isFinished()){
+            announce("No hint found in time (" + s.getStatus() + " after " + s.getExpandedConfigs() + " configs)");
+        }
+        else if(steps.size() == 0){
+            announce(s.isSolvable() ? "The board can be solved, but the solver keeps no path" : "Unsolvable board");
         }
         else if(steps.size() == 1){//If there is only one step to the solution (the solution has been found)
             announce("Current board is already solved");
         }
         else{
-            config = (LunarLandingConfig) steps.get(1); //Sets the next step config to the current config
-            announce("show");
-            if (config.isSolution()){
-                announce("I WON!");
-            }
+            showHint((LunarLandingConfig) steps.get(1)); //Sets the next step config to the current config
+        }
+    }
+
+    /**
+     * Makes the next step toward the goal the current config. In canonical mode the helpers of next may carry
+     * other letters, so the same board is made from the current one instead
+     * @param next: The config one move closer to the goal
+     */
+    private void showHint(LunarLandingConfig next){
+        config = LunarLandingConfig.CANONICAL ? (LunarLandingConfig) config.stepTo(next) : next;
+        announce("show");
+        if (config.isSolution()){
+            announce("I WON!");
+        }
+    }
+
+    /**
+     * Looks up how many moves the current board is from the goal
+     * @return The amount of moves, DistanceOracle.UNSOLVABLE if the goal can not be reached, or
+     * DistanceOracle.UNKNOWN if the board has no distance table
+     */
+    public int getDistanceToGoal(){
+        if (oracle == null){
+            return DistanceOracle.UNKNOWN;
         }
+        return oracle.distance(config);
     }
 
     /**
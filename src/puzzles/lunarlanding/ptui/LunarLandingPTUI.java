@@ -2,6 +2,7 @@ package puzzles.lunarlanding.ptui;
 
 import puzzles.lunarlanding.model.LunarLandingConfig;
 import puzzles.lunarlanding.model.LunarLandingModel;
+import solver.DistanceOracle;
 import solver.Solver;
 import util.Observer;
 
@@ -70,6 +71,12 @@ public class LunarLandingPTUI implements Observer<LunarLandingModel, String> {
             case "show":
                 System.out.println();
                 System.out.println(l.toString());
+                if (l.getDistanceToGoal() > 0){
+                    System.out.println("Solvable in " + l.getDistanceToGoal() + " moves");
+                }
+                else if (l.getDistanceToGoal() == DistanceOracle.UNSOLVABLE){
+                    System.out.println("The goal can no longer be reached");
+                }
                 break;
             case "selection":
                 break;
@@ -32,12 +32,12 @@ public class TipOver {
     public void solve(){
         System.out.println("Start Configuration: ");
         System.out.println(initialConfig);
-        Solver solver = new Solver();
+        Solver solver = Solver.create();
         List<Configuration> path = solver.BFS(initialConfig);
         System.out.println("Total Configs: " + solver.getTotalConfigs());
         System.out.println("Unique Configs: " + solver.getUniqueConfigs());
         if(path.size() == 0)
-            System.out.println("No Solution");
+            System.out.println(solver.isSolvable() ? "Solvable, no path was kept" : "No Solution");
         for(int i = 0; i < path.size(); i++){
             System.out.println("Step " + i + ":");
             System.out.println(path.get(i));
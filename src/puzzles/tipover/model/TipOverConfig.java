@@ -1,6 +1,8 @@
 package puzzles.tipover.model;
 
 import solver.Configuration;
+import solver.SearchDomain;
+import solver.Zobrist;
 import util.Coordinates;
 
 import java.io.*;
@@ -9,20 +11,51 @@ import java.util.*;
 /**
  * Public Configuration class for the TipOver puzzle that holds all the state necessary for representing
  *  a configuration, and holds all the methods necessary for a Breadth First Search Algorithm.
+ * The board only changes when a tower falls, so a configuration does not keep a grid. It keeps the square of the
+ *  tipper and the status of every tower of the puzzle file, 0 while it stands or the direction it fell in, as a
+ *  mixed radix number with one digit of base STATUS_RADIX per tower, and the grid is derived from the grid of the
+ *  puzzle file when it is needed. Each configuration also carries a Zobrist fingerprint of its tipper's square
+ *  and its fallen towers, updated with each move, which is its hash code and lets equals() tell most states
+ *  apart with one comparison.
  * @author Damon Gonzalez
  * November 2021
  */
 public class TipOverConfig implements Configuration{
-    /** The grid of squares that holds the value of the configuration */
-    private char[] grid;
+    /** The row and column step of each direction, in the order north, south, west, east */
+    private static final int[] ROW_STEPS = {-1, 1, 0, 0}, COL_STEPS = {0, 0, -1, 1};
+    /** The amount of statuses a tower can have, standing or fallen in one of the four directions */
+    static final int STATUS_RADIX = 5;
+    /** The amount of towers whose statuses fit into one long, the largest n with STATUS_RADIX^n - 1 below 2^63 */
+    private static final int TOWERS_PER_WORD = 27;
+    /** The place value of the status of each tower within its long, STATUS_RADIX to the power of its place */
+    private static final long[] PLACE_VALUES = new long[TOWERS_PER_WORD];
+    static {
+        PLACE_VALUES[0] = 1;
+        for(int place = 1; place < TOWERS_PER_WORD; place++)
+            PLACE_VALUES[place] = PLACE_VALUES[place - 1] * STATUS_RADIX;
+    }
+    /** The grid of the puzzle file, with every tower standing, does not change */
+    private static char[] startGrid;
+    /** The square of each tower of the puzzle file, does not change */
+    private static int[] towerSquares;
+    /** The height of each tower of the puzzle file, does not change */
+    private static int[] towerHeights;
+    /** The tower on each square of the puzzle file, or -1, does not change */
+    private static int[] towerAt;
     /** The amount of rows, does not change */
     private static int rows;
     /** The amount of columns in each row, does not change */
     private static int cols;
     /** The location of the goal crate, does not change */
     private static Coordinates goal;
-    /** The location of the tipper of this config */
-    private Coordinates tipperLocation;
+    /** The collision counters of the fingerprints */
+    private static final Zobrist FINGERPRINTS = Zobrist.of(TipOverConfig.class);
+    /** The status of every tower, TOWERS_PER_WORD towers per long */
+    private final long[] statuses;
+    /** The square of the tipper of this config, row * cols + col */
+    private final int tipperSquare;
+    /** The Zobrist fingerprint of the tipper's square and the statuses */
+    private final long fingerprint;
 
     /**
      * Public constructor for a TipOverConfig that is meant to be used to generate
@@ -35,8 +68,8 @@ public class TipOverConfig implements Configuration{
         String[] values = line.split("\\s++");
         rows = Integer.parseInt(values[0]);
         cols = Integer.parseInt(values[1]);
-        grid = new char[rows * cols];
-        tipperLocation = new Coordinates(Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+        char[] grid = new char[rows * cols];
+        tipperSquare = Integer.parseInt(values[2]) * cols + Integer.parseInt(values[3]);
         goal = new Coordinates(Integer.parseInt(values[4]), Integer.parseInt(values[5]));
         int index = 0;
         while(!(line = in.readLine()).equals("")){
@@ -46,15 +79,48 @@ public class TipOverConfig implements Configuration{
                 index++;
             }
         }
+        startGrid = grid;
+        towerAt = new int[grid.length];
+        Arrays.fill(towerAt, -1);
+        int towers = 0;
+        for(int square = 0; square < grid.length; square++)
+            if(grid[square] > '1') towerAt[square] = towers++;
+        towerSquares = new int[towers];
+        towerHeights = new int[towers];
+        for(int square = 0; square < grid.length; square++){
+            if(towerAt[square] != -1){
+                towerSquares[towerAt[square]] = square;
+                towerHeights[towerAt[square]] = grid[square] - '0';
+            }
+        }
+        statuses = new long[Math.max(1, (towers + TOWERS_PER_WORD - 1) / TOWERS_PER_WORD)];
+        fingerprint = tipperKey(tipperSquare);
     }
 
     /**
-     * Copy constructor for this class
-     * @param other The other TipOverConfig to be copied from
+     * Package private constructor used by TipOverDomain to build the Configurations of a path
+     * @param statuses The status of every tower, it is not copied
+     * @param tipperSquare The square of the tipper
      */
-    private TipOverConfig(TipOverConfig other){
-        this.grid = Arrays.copyOf(other.grid, other.grid.length);
-        this.tipperLocation = new Coordinates(other.tipperLocation.row(), other.tipperLocation.col());
+    TipOverConfig(long[] statuses, int tipperSquare){
+        this.statuses = statuses;
+        this.tipperSquare = tipperSquare;
+        long fingerprint = tipperKey(tipperSquare);
+        for(int tower = 0; tower < towerSquares.length; tower++)
+            fingerprint ^= statusKey(tower, status(tower));
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Private constructor used to build the neighbors, with a fingerprint updated from the one of their parent
+     * @param statuses The status of every tower, it is not copied
+     * @param tipperSquare The square of the tipper
+     * @param fingerprint The fingerprint of the statuses and the tipper's square
+     */
+    private TipOverConfig(long[] statuses, int tipperSquare, long fingerprint){
+        this.statuses = statuses;
+        this.tipperSquare = tipperSquare;
+        this.fingerprint = fingerprint;
     }
 
     /**
@@ -63,96 +129,116 @@ public class TipOverConfig implements Configuration{
      */
     @Override
     public boolean isSolution() {
-        return goal.equals(tipperLocation);
+        return goal.row() * cols + goal.col() == tipperSquare;
     }
 
     @Override
-    public List<Configuration> getNeighbors() {//UPDATE THIS SO THAT THE TIPPER CAN MOVE FROM A TOWER(GREATER THAN '1') TO ANOTHER TOWER WITHOUT TIPPING OVER
+    public List<Configuration> getNeighbors() {
         List<Configuration> neighbors = new ArrayList<>();
-        char tipperSquare = get(tipperLocation);
-        Coordinates NORTH = new Coordinates(tipperLocation.row() - 1, tipperLocation.col());
-        if(tipperLocation.row() > 0 && get(NORTH) != '0'){
-            TipOverConfig neighbor = new TipOverConfig(this);
-            neighbor.tipperLocation = NORTH;
-            neighbors.add(neighbor);
+        forEachNeighbor(neighbors::add);
+        return neighbors;
+    }
+
+    /**
+     * Streams the neighbors without building a list: walking to each of the four adjacent squares that is
+     *  not empty, then tipping the tipper's tower over in each direction it has room to fall in
+     * @param visitor Called with each neighbor, returns false to stop
+     * @return True if every neighbor was visited, false if the visitor stopped early
+     */
+    @Override
+    public boolean forEachNeighbor(Visitor visitor) {//UPDATE THIS SO THAT THE TIPPER CAN MOVE FROM A TOWER(GREATER THAN '1') TO ANOTHER TOWER WITHOUT TIPPING OVER
+        int row = tipperSquare / cols, col = tipperSquare % cols;
+        if(row > 0 && at(tipperSquare - cols) != '0'){
+            if(!visitor.visit(walk(tipperSquare - cols))) return false;
         }
-        Coordinates SOUTH = new Coordinates(tipperLocation.row() + 1, tipperLocation.col());
-        if(tipperLocation.row() + 1 < rows && get(SOUTH) != '0'){
-            TipOverConfig neighbor = new TipOverConfig(this);
-            neighbor.tipperLocation = SOUTH;
-            neighbors.add(neighbor);
+        if(row + 1 < rows && at(tipperSquare + cols) != '0'){
+            if(!visitor.visit(walk(tipperSquare + cols))) return false;
         }
-        Coordinates WEST = new Coordinates(tipperLocation.row(), tipperLocation.col() - 1);
-        if(tipperLocation.col() > 0 && get(WEST) != '0'){
-            TipOverConfig neighbor = new TipOverConfig(this);
-            neighbor.tipperLocation = WEST;
-            neighbors.add(neighbor);
+        if(col > 0 && at(tipperSquare - 1) != '0'){
+            if(!visitor.visit(walk(tipperSquare - 1))) return false;
         }
-        Coordinates EAST = new Coordinates(tipperLocation.row(), tipperLocation.col() + 1);
-        if(tipperLocation.col() + 1 < cols && get(EAST) != '0'){
-            TipOverConfig neighbor = new TipOverConfig(this);
-            neighbor.tipperLocation = EAST;
-            neighbors.add(neighbor);
+        if(col + 1 < cols && at(tipperSquare + 1) != '0'){
+            if(!visitor.visit(walk(tipperSquare + 1))) return false;
         }
-        if(tipperSquare != '1')    {
-            int towerLength = Integer.parseInt(String.valueOf(tipperSquare));
-            Coordinates toNORTH = new Coordinates(tipperLocation.row() - towerLength, tipperLocation.col());
-            if(tipperLocation.row() > towerLength && isClear(NORTH, toNORTH)){
-                TipOverConfig neighbor = new TipOverConfig(this);
-                neighbor.towerFall(NORTH, toNORTH);
-                neighbor.set(neighbor.tipperLocation, '0');
-                neighbor.tipperLocation = NORTH;
-                neighbors.add(neighbor);
+        int tower = towerAt[tipperSquare];
+        if(tower != -1 && status(tower) == 0)    {
+            int towerLength = towerHeights[tower];
+            if(row > towerLength && isClear(0, towerLength)){
+                if(!visitor.visit(towerFall(tower, 0))) return false;
             }
-            Coordinates toSOUTH = new Coordinates(tipperLocation.row() + towerLength, tipperLocation.col());
-            if(tipperLocation.row() + towerLength < rows && isClear(SOUTH, toSOUTH)){
-                TipOverConfig neighbor = new TipOverConfig(this);
-                neighbor.towerFall(SOUTH, toSOUTH);
-                neighbor.set(neighbor.tipperLocation, '0');
-                neighbor.tipperLocation = SOUTH;
-                neighbors.add(neighbor);
+            if(row + towerLength < rows && isClear(1, towerLength)){
+                if(!visitor.visit(towerFall(tower, 1))) return false;
             }
-            Coordinates toWEST = new Coordinates(tipperLocation.row(), tipperLocation.col() - towerLength);
-            if(tipperLocation.col() > towerLength && isClear(WEST, toWEST)){
-                TipOverConfig neighbor = new TipOverConfig(this);
-                neighbor.towerFall(WEST, toWEST);
-                neighbor.set(neighbor.tipperLocation, '0');
-                neighbor.tipperLocation = WEST;
-                neighbors.add(neighbor);
+            if(col > towerLength && isClear(2, towerLength)){
+                if(!visitor.visit(towerFall(tower, 2))) return false;
             }
-            Coordinates toEAST = new Coordinates(tipperLocation.row(), tipperLocation.col() + towerLength);
-            if(tipperLocation.col() + towerLength < cols && isClear(EAST, toEAST)){
-                TipOverConfig neighbor = new TipOverConfig(this);
-                neighbor.towerFall(EAST, toEAST);
-                neighbor.set(neighbor.tipperLocation, '0');
-                neighbor.tipperLocation = EAST;
-                neighbors.add(neighbor);
+            if(col + towerLength < cols && isClear(3, towerLength)){
+                if(!visitor.visit(towerFall(tower, 3))) return false;
             }
         }
-        return neighbors;
+        return true;
     }
 
     /**
-     * A TipOverConfig is equal to another if its grids are equal and its tipperLocation is equal
+     * Replays a move labelled by TipOverDomain.forEachMove(), 0 to 3 walk north, south, west or east and 4 to 7
+     *  tip the tipper's tower over in those directions. The move is assumed to be valid.
+     * @param move The label of the move
+     * @return The TipOverConfig the move leads to
+     */
+    @Override
+    public Configuration applyMove(int move) {
+        if(move >= 4) return towerFall(towerAt[tipperSquare], move - 4);
+        return walk(tipperSquare + ROW_STEPS[move] * cols + COL_STEPS[move]);
+    }
+
+    /**
+     * The tipper moves one square per step, whether it walks or tips a tower over, so it needs at least
+     *  as many steps as the Manhattan distance to the goal crate
+     * @return The Manhattan distance between the tipper and the goal
+     */
+    @Override
+    public int estimateDistance() {
+        return Math.abs(goal.row() - tipperSquare / cols) + Math.abs(goal.col() - tipperSquare % cols);
+    }
+
+    /**
+     * Encodes the tipper's square and the status of each tower into a long, when there are few enough towers
+     * @return A TipOverDomain starting from this configuration, or null if it does not fit
+     */
+    @Override
+    public SearchDomain getSearchDomain() {
+        if(!TipOverDomain.canEncode(startGrid)) return null;
+        return new TipOverDomain(startGrid, this);
+    }
+
+    /**
+     * A TipOverConfig is equal to another if the status of every tower is equal and its tipper's square is equal.
+     *  Configurations with different fingerprints are never equal, so only equal fingerprints are looked into.
      * @param other The object being compared
      * @return True if the objects are completely equal, false otherwise
      */
     @Override
     public boolean equals(Object other){
         if(other instanceof TipOverConfig otherConfig){
-            return this.tipperLocation.equals(otherConfig.tipperLocation)
-                    && Arrays.equals(this.grid, otherConfig.grid);
+            if(this.fingerprint != otherConfig.fingerprint){
+                if(hashCode() == otherConfig.hashCode()) FINGERPRINTS.countHashCollision();
+                return false;
+            }
+            boolean equal = this.tipperSquare == otherConfig.tipperSquare
+                    && Arrays.equals(this.statuses, otherConfig.statuses);
+            if(!equal) FINGERPRINTS.countFingerprintCollision();
+            return equal;
         }
         return false;
     }
 
     /**
      * Gives a hash code that is necessary for the HashMap used in the solver
-     * @return An integer hash value of the state of this grid
+     * @return The fingerprint folded into an int
      */
     @Override
     public int hashCode(){
-        return Arrays.hashCode(grid) + tipperLocation.hashCode();
+        return Long.hashCode(fingerprint);
     }
 
     /**
@@ -167,21 +253,20 @@ public class TipOverConfig implements Configuration{
         message.append("\n   ");
         message.append("___".repeat(Math.max(0, cols)));
         message.append("\n");
-        int start = 0;
+        int goalSquare = goal.row() * cols + goal.col();
         for(int i = 0; i < rows; i++){
             message.append(i).append(" |");
-            for(int j = start; j < start + cols; j++){
-                Coordinates c = new Coordinates(i, j);
+            for(int square = i * cols; square < (i + 1) * cols; square++){
                 message.append(" ");
-                if(goal.equals(c))
+                if(square == goalSquare)
                     message.append("!");
-                else if(tipperLocation.equals(c))
+                else if(square == tipperSquare)
                     message.append("*");
                 else
                     message.append(" ");
-                char square = get(c);
-                if(square == '0') message.append("_");
-                else message.append(square);
+                char value = at(square);
+                if(value == '0') message.append("_");
+                else message.append(value);
             }
             message.append("\n");
         }
@@ -189,105 +274,120 @@ public class TipOverConfig implements Configuration{
     }
 
     /**
-     * Private helper function to abstract configuration's relationship to the array of characters representing
-     *  a two-dimensional grid. Sets a given location in grid to a specified new character; Guaranteed
-     *  to be valid coordinates of grid
+     * Public helper function to abstract configuration's relationship to the two-dimensional grid. Returns a char at
+     *  a given location in grid; Guaranteed to be valid coordinates of grid. It is public because the GUI must use is
+     *  to get elements of the grid
      * @param a The Coordinate object that represents its row, col location
-     * @param c The char being set
+     * @return The char being gotten
      */
-    private void set(Coordinates a, char c){
-        int index = a.row() * cols + a.col();
-        grid[index] = c;
+    public char get(Coordinates a){
+        return at(a.row() * cols + a.col());
     }
 
     /**
-     * Public helper function to abstract configuration's relationship to the array of characters representing
-     *  a two-dimensional grid. Returns a char at a given location in grid; Guaranteed
-     *  to be valid coordinates of grid. It is public because the GUI must use is to get elements of the grid
-     * @param a The Coordinate object that represents its row, col location
-     * @return The char being gotten
+     * Private helper that derives one square of the grid from the grid of the puzzle file: a standing tower or a
+     *  '1' of the file is unchanged, and any other square is '1' if a fallen tower lies on it and '0' otherwise
+     * @param square The index of the square, row * cols + col
+     * @return The char of the square
      */
-    public char get(Coordinates a){
-        int index = a.row() * cols + a.col();
-        return grid[index];
+    private char at(int square){
+        int tower = towerAt[square];
+        if(tower == -1 ? startGrid[square] != '0' : status(tower) == 0) return startGrid[square];
+        int row = square / cols, col = square % cols;
+        for(int other = 0; other < towerSquares.length; other++){
+            int status = status(other);
+            if(status == 0) continue;
+            int rowOffset = row - towerSquares[other] / cols, colOffset = col - towerSquares[other] % cols;
+            int distance = rowOffset * ROW_STEPS[status - 1] + colOffset * COL_STEPS[status - 1];
+            boolean inLine = ROW_STEPS[status - 1] == 0 ? rowOffset == 0 : colOffset == 0;
+            if(inLine && distance >= 1 && distance <= towerHeights[other]) return '1';
+        }
+        return '0';
     }
 
     /**
-     * Private helper function to determine if there is space between two coordinates(on the grid) for a tower to fall on. Guaranteed
-     *  to be valid coordinates of grid and to be in line horizontally or vertically
-     * @param from The coordinate of one end of the fallen tower
-     * @param to The coordinate of the other end of the fallen tower
+     * Private helper function to determine if there is space next to the tipper for its tower to fall on.
+     *  Guaranteed to stay on the grid
+     * @param direction The direction, in the order north, south, west, east
+     * @param towerLength The height of the tower
      * @return True if there is space, False otherwise
      */
-    private boolean isClear(Coordinates from, Coordinates to){
-        if(from.row() == to.row()){
-            if(from.col() > to.col()){
-                for(int i = to.col(); i <= from.col(); i++){
-                    Coordinates current = new Coordinates(from.row(), i);
-                    if(get(current) != '0') return false;
-                }
-            } else {
-                for(int i = from.col(); i <= to.col(); i++){
-                    Coordinates current = new Coordinates(from.row(), i);
-                    if(get(current) != '0') return false;
-                }
-            }
-        } else {
-            if(from.row() > to.row()){
-                for(int i = to.row(); i <= from.row(); i++){
-                    Coordinates current = new Coordinates(i, from.col());
-                    if(get(current) != '0') return false;
-                }
-            } else {
-                for(int i = from.row(); i <= to.row(); i++){
-                    Coordinates current = new Coordinates(i, from.col());
-                    if(get(current) != '0') return false;
-                }
-            }
-        }
+    private boolean isClear(int direction, int towerLength){
+        int step = ROW_STEPS[direction] * cols + COL_STEPS[direction];
+        for(int i = 1; i <= towerLength; i++)
+            if(at(tipperSquare + i * step) != '0') return false;
         return true;
     }
 
     /**
-     * Private helper function that is meant to simulate the tipping over of a tower, coordinates are provided
-     *  for each end of the tower. In order to simulate this, the method sets all coordinates in grid from one parameter
-     *  to the other, inclusive, to the char '1'.
-     * @param from One end of the fallen tower
-     * @param to The other end of the fallen tower
+     * Private helper function that is meant to simulate the tipping over of the tipper's tower. In order to simulate
+     *  this, the tower's status is set to the direction, and the tipper moves onto the first square it fell on.
+     * @param tower The index of the tower the tipper stands on
+     * @param direction The direction, in the order north, south, west, east
+     * @return The TipOverConfig after the tower fell
      */
-    private void towerFall(Coordinates from, Coordinates to){
-        if(from.row() == to.row()){
-            if(from.col() > to.col()){
-                for(int i = to.col(); i <= from.col(); i++){
-                    Coordinates current = new Coordinates(from.row(), i);
-                    set(current, '1');
-                }
-            } else {
-                for(int i = from.col(); i <= to.col(); i++){
-                    Coordinates current = new Coordinates(from.row(), i);
-                    set(current, '1');
-                }
-            }
-        } else {
-            if(from.row() > to.row()){
-                for(int i = to.row(); i <= from.row(); i++){
-                    Coordinates current = new Coordinates(i, from.col());
-                    set(current, '1');
-                }
-            } else {
-                for(int i = from.row(); i <= to.row(); i++){
-                    Coordinates current = new Coordinates(i, from.col());
-                    set(current, '1');
-                }
-            }
-        }
+    private TipOverConfig towerFall(int tower, int direction){
+        long[] fallen = statuses.clone();
+        fallen[tower / TOWERS_PER_WORD] += (direction + 1) * PLACE_VALUES[tower % TOWERS_PER_WORD];
+        int next = tipperSquare + ROW_STEPS[direction] * cols + COL_STEPS[direction];
+        return new TipOverConfig(fallen, next, fingerprint ^ tipperKey(tipperSquare) ^ tipperKey(next)
+                ^ statusKey(tower, direction + 1));
+    }
+
+    /**
+     * Private helper that moves the tipper to another square, the statuses are shared with this config
+     * @param next The square the tipper moves to
+     * @return The TipOverConfig after the move
+     */
+    private TipOverConfig walk(int next){
+        return new TipOverConfig(statuses, next, fingerprint ^ tipperKey(tipperSquare) ^ tipperKey(next));
+    }
+
+    /**
+     * Private helper for the Zobrist key of the tipper standing on a square
+     * @param square The square
+     * @return Its key
+     */
+    private static long tipperKey(int square){
+        return Zobrist.key(square);
+    }
+
+    /**
+     * Private helper for the Zobrist key of the status of a tower, a standing tower adds nothing to the fingerprint
+     * @param tower The index of the tower
+     * @param status The status of the tower
+     * @return Its key, or 0 if the tower is standing
+     */
+    private static long statusKey(int tower, int status){
+        return status == 0 ? 0 : Zobrist.key(((long) (tower + 1) << 32) | status);
+    }
+
+    /**
+     * Private helper that extracts the status of one tower
+     * @param tower The index of the tower
+     * @return 0 if the tower is standing, or the direction it fell in plus one, in the order north, south, west, east
+     */
+    private int status(int tower){
+        return (int) (statuses[tower / TOWERS_PER_WORD] / PLACE_VALUES[tower % TOWERS_PER_WORD] % STATUS_RADIX);
     }
 
+    /**
+     * Package private getter for the statuses, used by TipOverDomain to encode this config
+     * @return The statuses of every tower, not a copy
+     */
+    long[] getStatuses() { return statuses; }
+
+    /**
+     * Package private getter for the tipper's square, used by TipOverDomain to encode this config
+     * @return The square of the tipper, row * cols + col
+     */
+    int getTipperSquare() { return tipperSquare; }
+
     /**
      * Public getter for the location of the tipper
      * @return The location of the tipper, as a Coordinates object
      */
-    public Coordinates getTipperLocation() { return tipperLocation; }
+    public Coordinates getTipperLocation() { return new Coordinates(tipperSquare / cols, tipperSquare % cols); }
 
     /**
      * Public getter for the location of the goal
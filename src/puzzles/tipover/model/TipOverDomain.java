@@ -0,0 +1,285 @@
+package puzzles.tipover.model;
+
+import solver.Configuration;
+import solver.SearchDomain;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * SearchDomain for the TipOver puzzle. The only things that change during a game are the position of the tipper
+ *  and which towers have fallen in which direction, so a state is the index of the tipper's square in the low
+ *  bits followed by the statuses of the towers of the puzzle file, the same mixed radix number a TipOverConfig
+ *  keeps, with one digit per tower: 0 if it is standing, or the direction it fell in. Moves are labelled 0 to
+ *  3 for walking north, south, west and east, and 4 to 7 for tipping the tower the tipper stands on in those
+ *  directions.
+ * A state is expanded on bitboards: every row and every column keeps a mask of the squares that are not empty,
+ *  built from masks of the start grid by taking fallen towers off and putting their lines down, and the squares
+ *  each tower covers after falling in each direction are precomputed as a span mask of its row or column, so a
+ *  tower has room to fall if its span and the mask do not intersect.
+ * @author Damon Gonzalez
+ * November 2021
+ */
+public class TipOverDomain implements SearchDomain {
+    /** Tower status codes, a standing tower is 0 */
+    private static final int NORTH = 1, SOUTH = 2, WEST = 3, EAST = 4;
+    /** The names of the directions of the moves, in the order of their labels */
+    private static final String[] DIRECTIONS = {"north", "south", "west", "east"};
+    /** The amount of directions a tower can fall in */
+    private static final int DIRECTION_COUNT = 4;
+
+    /** The square of each tower */
+    private final int[] towerSquares;
+    /** The height of each tower */
+    private final int[] towerHeights;
+    /** The tower standing on each square, or -1 */
+    private final int[] towerAt;
+    /** The place value of the status of each tower in the statuses */
+    private final long[] placeValues;
+    /**
+     * The squares each tower covers after falling in each direction, at tower * 4 + direction in the order north,
+     *  south, west, east, as a mask of its column for north and south or of its row for west and east. A span is
+     *  0 if the tower has no room to fall that way on the grid.
+     */
+    private final long[] spans;
+    /** What to add to a square to get to the next one in each direction */
+    private final int[] steps;
+    /** The squares of the start grid that are not empty, per row and per column */
+    private final long[] baseRowMasks, baseColMasks;
+    /** Scratch space for the squares that are not empty in the state being expanded, per row and per column */
+    private final long[] rowMasks, colMasks;
+    /** The amount of bits used for the tipper's square */
+    private final int squareBits;
+    /** The amount of rows and columns of the grid */
+    private final int rows, cols;
+    /** The square of the goal crate */
+    private final int goalSquare;
+    /** The code of the start state */
+    private final long start;
+
+    /**
+     * Public constructor for a TipOverDomain, only valid if canEncode() is true for the grid
+     * @param grid The grid of the puzzle file, with every tower standing, it is not modified
+     * @param startConfig The configuration the search starts from
+     */
+    public TipOverDomain(char[] grid, TipOverConfig startConfig){
+        this.rows = TipOverConfig.getRows();
+        this.cols = TipOverConfig.getCols();
+        this.squareBits = squareBits(grid.length);
+        this.goalSquare = TipOverConfig.getGoal().row() * cols + TipOverConfig.getGoal().col();
+        this.towerAt = new int[grid.length];
+        Arrays.fill(towerAt, -1);
+        int towers = countTowers(grid);
+        this.towerSquares = new int[towers];
+        this.towerHeights = new int[towers];
+        this.placeValues = new long[towers];
+        int tower = 0;
+        for(int square = 0; square < grid.length; square++){
+            if(grid[square] > '1'){
+                towerSquares[tower] = square;
+                towerHeights[tower] = grid[square] - '0';
+                towerAt[square] = tower;
+                placeValues[tower] = tower == 0 ? 1 : placeValues[tower - 1] * TipOverConfig.STATUS_RADIX;
+                tower++;
+            }
+        }
+        this.steps = new int[]{-cols, cols, -1, 1};
+        this.spans = new long[towers * DIRECTION_COUNT];
+        for(tower = 0; tower < towers; tower++){
+            int row = towerSquares[tower] / cols, col = towerSquares[tower] % cols;
+            int height = towerHeights[tower];
+            long line = (1L << height) - 1;
+            int first = tower * DIRECTION_COUNT;
+            //The same bounds as TipOverConfig.forEachNeighbor()
+            if(row > height) spans[first] = line << (row - height);
+            if(row + height < rows) spans[first + 1] = line << (row + 1);
+            if(col > height) spans[first + 2] = line << (col - height);
+            if(col + height < cols) spans[first + 3] = line << (col + 1);
+        }
+        this.baseRowMasks = new long[rows];
+        this.baseColMasks = new long[cols];
+        for(int square = 0; square < grid.length; square++){
+            if(grid[square] != '0'){
+                baseRowMasks[square / cols] |= 1L << (square % cols);
+                baseColMasks[square % cols] |= 1L << (square / cols);
+            }
+        }
+        this.rowMasks = new long[rows];
+        this.colMasks = new long[cols];
+        this.start = encode(startConfig);
+    }
+
+    /**
+     * Checks if every state reachable from a grid fits into a long
+     * @param grid The grid
+     * @return True if the tipper's square and the status of every tower fit into 64 bits, and every row and
+     *  column fits into the 64 bits of a mask
+     */
+    public static boolean canEncode(char[] grid){
+        return TipOverConfig.getRows() <= Long.SIZE && TipOverConfig.getCols() <= Long.SIZE
+                && squareBits(grid.length) + statusBits(countTowers(grid)) <= Long.SIZE;
+    }
+
+    @Override
+    public long getStart() { return start; }
+
+    @Override
+    public boolean isSolution(long state) { return tipperSquare(state) == goalSquare; }
+
+    /**
+     * Generates the same neighbors, in the same order, as TipOverConfig.getNeighbors()
+     * @param state The encoded state
+     * @param action Called with each neighbor
+     */
+    @Override
+    public void forEachNeighbor(long state, LongConsumer action){
+        expand(state, action, null);
+    }
+
+    /**
+     * Generates the same neighbors, in the same order, as TipOverConfig.getNeighbors(), each labelled by the
+     *  walk or tip that reaches it
+     * @param state The encoded state
+     * @param action Called with each neighbor and its move
+     */
+    @Override
+    public void forEachMove(long state, MoveConsumer action){
+        expand(state, null, action);
+    }
+
+    /**
+     * Private helper that generates the neighbors of a state for forEachNeighbor() and forEachMove(), without
+     *  allocating. The masks of the tipper's row and column are read before any neighbor is handed out.
+     * @param state The encoded state
+     * @param plain Called with each neighbor, or null
+     * @param labelled Called with each neighbor and its move, or null
+     */
+    private void expand(long state, LongConsumer plain, MoveConsumer labelled){
+        fillMasks(state);
+        int square = tipperSquare(state);
+        int row = square / cols;
+        int col = square % cols;
+        long line = rowMasks[row], column = colMasks[col];
+        long others = state & ~((1L << squareBits) - 1);
+        if(row > 0 && (column & (1L << (row - 1))) != 0) emit(plain, labelled, others | (square - cols), 0);
+        if(row + 1 < rows && (column & (1L << (row + 1))) != 0) emit(plain, labelled, others | (square + cols), 1);
+        if(col > 0 && (line & (1L << (col - 1))) != 0) emit(plain, labelled, others | (square - 1), 2);
+        if(col + 1 < cols && (line & (1L << (col + 1))) != 0) emit(plain, labelled, others | (square + 1), 3);
+        int tower = towerAt[square];
+        if(tower != -1 && status(state >>> squareBits, tower) == 0){
+            for(int direction = 0; direction < DIRECTION_COUNT; direction++){
+                long span = spans[tower * DIRECTION_COUNT + direction];
+                if(span != 0 && ((direction < 2 ? column : line) & span) == 0)
+                    emit(plain, labelled, others + ((direction + 1) * placeValues[tower] << squareBits)
+                            | (square + steps[direction]), DIRECTION_COUNT + direction);
+            }
+        }
+    }
+
+    /**
+     * Private helper that hands a neighbor to whichever consumer expand() was given
+     * @param plain Called with the neighbor, or null
+     * @param labelled Called with the neighbor and its move, or null
+     * @param neighbor The encoded neighbor
+     * @param move The label of the move
+     */
+    private static void emit(LongConsumer plain, MoveConsumer labelled, long neighbor, int move){
+        if(plain != null) plain.accept(neighbor);
+        else labelled.accept(neighbor, move);
+    }
+
+    @Override
+    public String describeMove(int move){
+        return (move < 4 ? "walk " : "tip ") + DIRECTIONS[move % 4];
+    }
+
+    @Override
+    public int getStateBytes() { return SearchDomain.bytesFor(squareBits + statusBits(towerSquares.length)); }
+
+    /**
+     * Codes saved when the statuses took 3 bits per tower, encoding 0, must not be read as mixed radix numbers
+     * @return 1
+     */
+    @Override
+    public long getEncodingId() { return 1; }
+
+    @Override
+    public Configuration decode(long state){
+        return new TipOverConfig(new long[]{state >>> squareBits}, tipperSquare(state));
+    }
+
+    /**
+     * A TipOverConfig keeps the statuses the same way, so only the tipper's square has to be added
+     * @param config A TipOverConfig of the puzzle this domain was built from
+     * @return Its code
+     */
+    @Override
+    public long encode(Configuration config){
+        TipOverConfig tipOver = (TipOverConfig) config;
+        return (tipOver.getStatuses()[0] << squareBits) | tipOver.getTipperSquare();
+    }
+
+    /**
+     * Private helper that writes the masks of the squares that are not empty in a state, the masks of the start
+     *  grid with every fallen tower taken off and its line put down. Every tower is taken off before any line is
+     *  put down, because a tower may have fallen onto the square another tower stood on before it fell.
+     * @param state The encoded state
+     */
+    private void fillMasks(long state){
+        System.arraycopy(baseRowMasks, 0, rowMasks, 0, rows);
+        System.arraycopy(baseColMasks, 0, colMasks, 0, cols);
+        long statuses = state >>> squareBits;
+        long rest = statuses;
+        for(int tower = 0; rest != 0; rest /= TipOverConfig.STATUS_RADIX, tower++){
+            if(rest % TipOverConfig.STATUS_RADIX == 0) continue;
+            int row = towerSquares[tower] / cols, col = towerSquares[tower] % cols;
+            rowMasks[row] &= ~(1L << col);
+            colMasks[col] &= ~(1L << row);
+        }
+        for(int tower = 0; statuses != 0; statuses /= TipOverConfig.STATUS_RADIX, tower++){
+            int status = (int) (statuses % TipOverConfig.STATUS_RADIX);
+            if(status == 0) continue;
+            int row = towerSquares[tower] / cols, col = towerSquares[tower] % cols;
+            long span = spans[tower * DIRECTION_COUNT + status - 1];
+            if(status == NORTH || status == SOUTH){
+                colMasks[col] |= span;
+                for(long bits = span; bits != 0; bits &= bits - 1)
+                    rowMasks[Long.numberOfTrailingZeros(bits)] |= 1L << col;
+            } else {
+                rowMasks[row] |= span;
+                for(long bits = span; bits != 0; bits &= bits - 1)
+                    colMasks[Long.numberOfTrailingZeros(bits)] |= 1L << row;
+            }
+        }
+    }
+
+    /**
+     * Private helper that extracts the status of one tower
+     * @param statuses The statuses of all towers, the state without the tipper's square
+     * @param tower The index of the tower
+     * @return 0 if the tower is standing, or the direction it fell in
+     */
+    private int status(long statuses, int tower){
+        return (int) (statuses / placeValues[tower] % TipOverConfig.STATUS_RADIX);
+    }
+
+    /** Private helper that returns the tipper's square of an encoded state */
+    private int tipperSquare(long state) { return (int) (state & ((1L << squareBits) - 1)); }
+
+    /** Private helper that returns the amount of bits needed to store the index of any of the squares */
+    private static int squareBits(int squares) { return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(squares - 1)); }
+
+    /** Private helper that returns the amount of bits needed to store the statuses of an amount of towers */
+    private static int statusBits(int towers) {
+        return BigInteger.valueOf(TipOverConfig.STATUS_RADIX).pow(towers).subtract(BigInteger.ONE).bitLength();
+    }
+
+    /** Private helper that counts the towers, squares higher than 1, in a grid */
+    private static int countTowers(char[] grid){
+        int towers = 0;
+        for(char square : grid)
+            if(square > '1') towers++;
+        return towers;
+    }
+}
@@ -1,11 +1,17 @@
 package puzzles.tipover.model;
 
 import solver.Configuration;
+import solver.DistanceOracle;
+import solver.SearchDomain;
+import solver.SolutionCache;
+import solver.SolveOptions;
+import solver.SolveStatus;
 import solver.Solver;
 import util.Observer;
 import util.Coordinates;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -16,12 +22,21 @@ import java.util.List;
  * November 2021
  */
 public class TipOverModel {
+    /** The limits of the search behind a hint, so that a hard board can not freeze the user interface */
+    private static final SolveOptions HINT_LIMITS = new SolveOptions(Long.getLong("solver.hintMillis", 2000),
+            Long.getLong("solver.hintStates", 1_000_000), null);
     /** The current Configuration in this model */
     private TipOverConfig currentConfig = null;
     /** A counter variable to keep track of how many steps the user has performed on this attempt */
     private int steps;
     /** The name of the file from where the last successful puzzle load was from */
     private String lastFilename = "";
+    /** The SearchDomain of the loaded puzzle, used to encode states for the SolutionCache, or null */
+    private volatile SearchDomain domain = null;
+    /** The identity of the loaded puzzle in the SolutionCache */
+    private long puzzleId;
+    /** The distance of every state of the loaded puzzle to the goal, null until it is built or if it can not be */
+    private volatile DistanceOracle oracle = null;
     /** A list of observers to this model */
     private final List<Observer<TipOverModel, Object>> observers = new LinkedList<>();
 
@@ -44,7 +59,8 @@ public class TipOverModel {
 
     /**
      * Loads a new puzzle by setting the currentConfig the TipOverConfig initializer's constructor. Does
-     *  not call notifyObservers to avoid an exception at the start of the program
+     *  not call notifyObservers to avoid an exception at the start of the program. The distance table of the
+     *  puzzle is loaded or built in the background, and cheat() searches as usual until it is ready.
      * @param filename The file of the initial configuration of the puzzle
      */
     public void safeLoad(String filename){
@@ -52,6 +68,17 @@ public class TipOverModel {
             try {
                 currentConfig = new TipOverConfig(filename);
                 lastFilename = filename;
+                domain = currentConfig.getSearchDomain();
+                oracle = null;
+                if(domain != null) {
+                    puzzleId = SolutionCache.puzzleId(domain, Path.of(filename));
+                    SearchDomain loaded = domain;
+                    DistanceOracle.forPuzzleAsync(currentConfig.getSearchDomain(), Path.of(filename),
+                            Integer.getInteger("solver.oracleStates", 1_000_000)).whenComplete((built, failure) -> {
+                        if(failure != null) System.out.println("Unable to build distances for:" + filename);
+                        else if(domain == loaded) oracle = built;
+                    });
+                }
             } catch (IOException exception) {
                 System.out.println("Unable to find:" + filename);
             }
@@ -60,25 +87,73 @@ public class TipOverModel {
 
     /**
      * Used to cheat and show the user the next step in the shortest path from the current Configuration to the solution. If
-     * there is no solution, then the user is not told and a valid move is chosen at random.
+     * there is no solution, then the user is not told and a valid move is chosen at random. The step is looked up in the
+     * distance table of the puzzle when there is one. Otherwise it is looked up in the SolutionCache, and only searched
+     * for on a miss, bounded by HINT_LIMITS, set with -Dsolver.hintMillis and -Dsolver.hintStates; if the search gives up
+     * the tipper does not move. A finished search is stored in the cache.
      */
     public void cheat(){
         if(currentConfig != null) {
-            Solver solver = new Solver();
-            List<Configuration> path = solver.BFS(currentConfig);
-            if (path.size() > 1) {
-                currentConfig = (TipOverConfig) path.get(1);
+            if (oracle != null) {
+                Configuration next = oracle.nextStep(currentConfig);
+                if (next != null) {
+                    currentConfig = (TipOverConfig) next;
+                } else {
+                    randomMove();
+                }
+                steps++;
             } else {
-                List<Configuration> neighbors = currentConfig.getNeighbors();
-                if (neighbors.size() != 0) {
-                    currentConfig = (TipOverConfig) neighbors.get((int) (currentConfig.getNeighbors().size() * Math.random()));
+                SolutionCache.Entry cached = domain == null ? null
+                        : SolutionCache.getDefault().get(puzzleId, domain.encode(currentConfig));
+                if (cached != null) {
+                    if (cached.getDistance() > 0) {
+                        currentConfig = (TipOverConfig) domain.decode(cached.getNext());
+                    } else {
+                        randomMove();
+                    }
+                    steps++;
+                } else {
+                    Solver solver = Solver.create();
+                    solver.setOptions(HINT_LIMITS);
+                    List<Configuration> path = solver.BFS(currentConfig);
+                    if (domain != null && solver.isExact() && path.size() > 0) {
+                        SolutionCache.getDefault().putPath(puzzleId, domain, path);
+                    } else if (domain != null && solver.isExact() && solver.getStatus() == SolveStatus.NO_SOLUTION) {
+                        SolutionCache.getDefault().putUnsolvable(puzzleId, domain.encode(currentConfig));
+                    }
+                    if (path.size() > 1) {
+                        currentConfig = (TipOverConfig) path.get(1);
+                        steps++;
+                    } else if (path.size() == 1 || solver.getStatus() == SolveStatus.NO_SOLUTION) {
+                        randomMove();
+                        steps++;
+                    }
                 }
             }
-            steps++;
         }
         notifyObservers("");
     }
 
+    /**
+     * Private helper that moves the tipper to a random neighbor, if it has any
+     */
+    private void randomMove(){
+        List<Configuration> neighbors = currentConfig.getNeighbors();
+        if (neighbors.size() != 0) {
+            currentConfig = (TipOverConfig) neighbors.get((int) (neighbors.size() * Math.random()));
+        }
+    }
+
+    /**
+     * Looks up how many moves the current Configuration is from the goal
+     * @return The amount of moves, DistanceOracle.UNSOLVABLE if the goal can not be reached, or
+     *  DistanceOracle.UNKNOWN if there is no distance table
+     */
+    public int getDistanceToGoal(){
+        if(oracle == null || currentConfig == null) return DistanceOracle.UNKNOWN;
+        return oracle.distance(currentConfig);
+    }
+
     /**
      * Replaces the current Configuration with one moved by the tipper in a specified direction
      * @param direction The direction given by the user
@@ -1,6 +1,7 @@
 package puzzles.tipover.ptui;
 
 import puzzles.tipover.model.*;
+import solver.DistanceOracle;
 
 import util.Observer;
 import util.ptui.ConsoleApplication;
@@ -82,6 +83,12 @@ public class TipOverPTUI extends ConsoleApplication implements Observer<TipOverM
         }
         else {
             System.out.println(currentConfig);
+            int distance = model.getDistanceToGoal();
+            if (distance > 0) {
+                System.out.println("Solvable in " + distance + " moves");
+            } else if (distance == DistanceOracle.UNSOLVABLE) {
+                System.out.println("The goal can no longer be reached");
+            }
             if (!data.equals("")) {
                 System.out.println("Unable to move in " + data + " direction");
             } else if (currentConfig.isSolution()) {
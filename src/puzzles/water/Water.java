@@ -9,10 +9,14 @@ import java.util.*;
  * @author Damon Gonzalez
  */
 public class Water {
-    /** The desired amount of water */
-    private final int amount;
+    /** The desired amounts of water, a bucket holding any of them solves the puzzle */
+    private final int[] amounts;
+    /** Whether each amount from 0 to the largest desired amount is desired */
+    private final boolean[] wanted;
     /** The capacities of each bucket given to you */
     private final int[] bucketCapacities;
+    /** The buckets that share their capacity with another bucket, one group per capacity, each in increasing order */
+    private final int[][] symmetricGroups;
 
     /**
      * Public constructor to create an instance of Water class to solve
@@ -21,49 +25,163 @@ public class Water {
      * @param bucketCapacities The capacities
      */
     public Water(int amount, int[] bucketCapacities){
-        this.amount = amount;
+        this(new int[]{amount}, bucketCapacities);
+    }
+
+    /**
+     * Public constructor to create an instance of Water class whose solutions are the states where
+     * a bucket holds any of the desired amounts, as searched by a WaterBatch
+     * @param amounts The amounts
+     * @param bucketCapacities The capacities
+     */
+    public Water(int[] amounts, int[] bucketCapacities){
+        this.amounts = amounts;
         this.bucketCapacities = bucketCapacities;
+        this.symmetricGroups = findSymmetricGroups(bucketCapacities);
+        this.wanted = new boolean[Arrays.stream(amounts).max().orElse(-1) + 1];
+        for(int amount : amounts)
+            if(amount >= 0) wanted[amount] = true;
     }
 
-    /** Getter for the solution */
-    protected int getSolution() { return amount; }
+    /**
+     * Getter for the solution
+     * @param amount The amount held by a bucket
+     * @return True if the amount is one of the desired amounts
+     */
+    protected boolean isWanted(int amount) { return amount >= 0 && amount < wanted.length && wanted[amount]; }
 
     /** Getter for details specific to this Water puzzle */
     protected int[] getBucketCapacities() { return bucketCapacities; }
 
     /**
-     * Returns nothing. Calls the BFS algorithm to retrieve the shortest path and
-     * prints it out when done.
+     * Getter for the groups of buckets with equal capacities. Buckets of equal capacity can trade their amounts
+     *  without changing what can be measured, so WaterConfig.CANONICAL treats such trades as the same state.
+     * @return Each group of two or more buckets of equal capacity, empty if every capacity is different
+     */
+    protected int[][] getSymmetricGroups() { return symmetricGroups; }
+
+    /**
+     * Orders the buckets canonically: within each group of equal capacity the amounts are sorted, smallest first,
+     *  and laid out over the positions of the group in increasing order
+     * @param amounts The amounts in the buckets
+     * @return For each position of the canonical layout, the bucket whose amount is placed there
+     */
+    protected int[] canonicalOrder(int[] amounts){
+        int[] order = new int[amounts.length];
+        for(int i = 0; i < order.length; i++) order[i] = i;
+        for(int[] group : symmetricGroups){
+            for(int i = 1; i < group.length; i++){ //Insertion sort, stable so equal amounts keep their order
+                int bucket = order[group[i]];
+                int j = i;
+                while(j > 0 && amounts[order[group[j - 1]]] > amounts[bucket]){
+                    order[group[j]] = order[group[j - 1]];
+                    j--;
+                }
+                order[group[j]] = bucket;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Returns nothing. Checks the amounts against the capacities with a WaterAnalysis first, and only when they
+     * can not all be ruled out calls the BFS algorithm to retrieve the shortest path and prints it out when done.
      */
     public void solve(){
-        System.out.println("Amount: " + amount + ", Buckets: " + Arrays.toString(bucketCapacities));
+        System.out.println("Amount: " + (amounts.length == 1 ? String.valueOf(amounts[0]) : Arrays.toString(amounts))
+                + ", Buckets: " + Arrays.toString(bucketCapacities));
+        WaterAnalysis analysis = new WaterAnalysis(bucketCapacities);
+        System.out.println("Reachable Configs: at most " + analysis.getReachableBound());
+        String unsolvable = null;
+        for(int amount : amounts){ //Only ruled out if every amount is
+            unsolvable = analysis.whyUnsolvable(amount);
+            if(unsolvable == null) break;
+        }
+        if(unsolvable != null){
+            System.out.println("No solution, " + unsolvable);
+            return;
+        }
         Configuration startConfig = new WaterConfig(new int[bucketCapacities.length], this);
-        Solver solver = new Solver();
+        Solver solver = Solver.create();
         List<Configuration> path = solver.BFS(startConfig);
+        if(WaterConfig.CANONICAL) path = Configuration.relabel(path);
         System.out.println("Total Configs: " + solver.getTotalConfigs());
         System.out.println("Unique Configs: " + solver.getUniqueConfigs());
-        if(path.size() == 0) System.out.println("No solution");
+        if(path.size() == 0) System.out.println(solver.isSolvable() ? "Solvable, no path was kept" : "No solution");
         for(int i = 0; i < path.size(); i++)
             System.out.println("Step " + i + ": " + path.get(i));
     }
 
+    /**
+     * Private helper that groups the buckets by capacity
+     * @param capacities The capacities of the buckets
+     * @return The groups of two or more buckets with equal capacities
+     */
+    private static int[][] findSymmetricGroups(int[] capacities){
+        List<int[]> groups = new ArrayList<>();
+        boolean[] grouped = new boolean[capacities.length];
+        for(int i = 0; i < capacities.length; i++){
+            if(grouped[i]) continue;
+            int[] group = {i};
+            for(int j = i + 1; j < capacities.length; j++){
+                if(capacities[j] == capacities[i]){
+                    group = Arrays.copyOf(group, group.length + 1);
+                    group[group.length - 1] = j;
+                    grouped[j] = true;
+                }
+            }
+            if(group.length > 1) groups.add(group);
+        }
+        return groups.toArray(new int[0][]);
+    }
+
+    /**
+     * Returns nothing. Finds the shortest path for many amounts with one WaterBatch search and prints each
+     * answer as soon as it is found.
+     * @param amounts The amounts, or null for every amount that can be measured
+     * @param bucketCapacities The capacities
+     */
+    public static void solveAll(int[] amounts, int[] bucketCapacities){
+        System.out.println("Amounts: " + (amounts == null ? "all" : Arrays.toString(amounts))
+                + ", Buckets: " + Arrays.toString(bucketCapacities));
+        WaterBatch batch = new WaterBatch(bucketCapacities);
+        System.out.println("Reachable Configs: at most " + batch.getAnalysis().getReachableBound());
+        batch.solve(amounts, (amount, path) -> {
+            if(path.size() == 0) {
+                System.out.println("Amount: " + amount + ", No solution");
+            } else {
+                System.out.println("Amount: " + amount + ", " + (path.size() - 1) + " moves");
+                for(int i = 0; i < path.size(); i++)
+                    System.out.println("Step " + i + ": " + path.get(i));
+            }
+        });
+        System.out.println("Unique Configs: " + batch.getUniqueConfigs());
+        if(batch.getStatus() != SolveStatus.SOLVED && batch.getStatus() != SolveStatus.NO_SOLUTION)
+            System.out.println("Stopped: " + batch.getStatus());
+    }
 
     /**
      * Run an instance of the water buckets puzzle.
-     * @param args [0]: desired amount of water to be collected;
+     * @param args [0]: desired amount of water to be collected, several amounts separated by commas,
+     *                  or all for every amount that can be measured;
      *             [1..N]: the capacities of the N available buckets.
      */
     public static void main( String[] args ) {
         if ( args.length < 2 ) {
-            System.out.println("Usage: java Water amount bucket1 bucket2 ...");
+            System.out.println("Usage: java Water amount[,amount...]|all bucket1 bucket2 ...");
         }
         else {
-            int amount = Integer.parseInt(args[0]);
             int[] bucketCapacities = new int[args.length - 1];
             for(int i = 1; i < args.length; i++)
                 bucketCapacities[i - 1] = Integer.parseInt(args[i]);
-            Water puzzle = new Water(amount, bucketCapacities);
-            puzzle.solve();
+            if(args[0].equals("all")) {
+                solveAll(null, bucketCapacities);
+            } else if(args[0].contains(",")) {
+                solveAll(Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray(), bucketCapacities);
+            } else {
+                Water puzzle = new Water(Integer.parseInt(args[0]), bucketCapacities);
+                puzzle.solve();
+            }
         }
     }
 }
@@ -0,0 +1,82 @@
+package puzzles.water;
+
+import java.math.BigInteger;
+
+/**
+ * What the capacities of the buckets alone say about a water puzzle, worked out before any search. Every move
+ *  empties, fills or pours, so every amount that can ever be in a bucket is a multiple of the greatest common
+ *  divisor g of the capacities, and no bucket holds more than its capacity. That rules out an amount that is not
+ *  a multiple of g, or that is larger than the largest bucket, without exploring a single state. After every
+ *  move at least one bucket is empty or full, which bounds the amount of reachable states by the product of
+ *  (c/g + 1) over the capacities c, minus the states where no bucket is empty or full, the product of (c/g - 1).
+ * @author Damon Gonzalez
+ */
+public class WaterAnalysis {
+    /** The greatest common divisor of the capacities, 0 if every capacity is 0 */
+    private final int gcd;
+    /** The largest capacity */
+    private final int largest;
+    /** The most states that can be reached from all empty buckets */
+    private final BigInteger reachableBound;
+
+    /**
+     * Public constructor for a WaterAnalysis, the cost is linear in the amount of buckets
+     * @param capacities The capacities of the buckets, none negative
+     */
+    public WaterAnalysis(int[] capacities){
+        int divisor = 0;
+        int max = 0;
+        for(int capacity : capacities){
+            divisor = gcd(divisor, capacity);
+            max = Math.max(max, capacity);
+        }
+        this.gcd = divisor;
+        this.largest = max;
+        BigInteger all = BigInteger.ONE;
+        BigInteger neitherEmptyNorFull = BigInteger.ONE;
+        for(int capacity : capacities){
+            long levels = divisor == 0 ? 0 : capacity / divisor;
+            all = all.multiply(BigInteger.valueOf(levels + 1));
+            neitherEmptyNorFull = neitherEmptyNorFull.multiply(BigInteger.valueOf(Math.max(levels - 1, 0)));
+        }
+        this.reachableBound = capacities.length == 0 ? BigInteger.ONE : all.subtract(neitherEmptyNorFull);
+    }
+
+    /** Public getter for the greatest common divisor of the capacities, every reachable amount is a multiple of it */
+    public int getGcd() { return gcd; }
+
+    /** Public getter for the largest capacity, no reachable amount is larger */
+    public int getLargest() { return largest; }
+
+    /** Public getter for the most states that can be reached, the start included */
+    public BigInteger getReachableBound() { return reachableBound; }
+
+    /**
+     * Checks whether an amount is ruled out by the capacities alone. An amount that passes may still turn out
+     *  to be unreachable, the search decides that.
+     * @param amount The amount wanted in one of the buckets
+     * @return Why the amount can never be measured, or null if it can not be ruled out
+     */
+    public String whyUnsolvable(int amount){
+        if(amount == 0) return null;
+        if(amount < 0) return amount + " is negative";
+        if(amount > largest) return amount + " is more than the largest bucket, " + largest;
+        if(amount % gcd != 0) return amount + " is not a multiple of " + gcd + ", the gcd of the capacities";
+        return null;
+    }
+
+    /**
+     * Private helper for the greatest common divisor of two numbers
+     * @param a A number, not negative
+     * @param b A number, not negative
+     * @return Their greatest common divisor, the other number if one of them is 0
+     */
+    private static int gcd(int a, int b){
+        while(b != 0){
+            int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,127 @@
+package puzzles.water;
+
+import solver.Configuration;
+import solver.SolveStatus;
+import solver.Solver;
+import solver.StateTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers many amounts for the same buckets with a single breadth first search. The search starts from empty
+ *  buckets of a Water puzzle whose solutions hold any of the wanted amounts, and never stops at a solution;
+ *  instead, the first time any bucket holds a wanted amount, the path to that state is a shortest way to measure
+ *  it and is handed out right away, while the search goes on for the amounts still wanted. Amounts that a
+ *  WaterAnalysis rules out are answered before the search starts, and the search stops as soon as nothing is
+ *  wanted anymore, so asking for a thousand amounts costs one exploration of the reachable states at most.
+ *  The limits of the SolveOptions are checked before each expansion, like in every Solver, and the states are
+ *  compared as WaterConfig.CANONICAL tells.
+ * @author Damon Gonzalez
+ */
+public class WaterBatch extends Solver {
+    /** The capacities of the buckets */
+    private final int[] capacities;
+    /** What the capacities rule out */
+    private final WaterAnalysis analysis;
+
+    /**
+     * Public constructor for a WaterBatch
+     * @param capacities The capacities of the buckets
+     */
+    public WaterBatch(int[] capacities){
+        this.capacities = capacities;
+        this.analysis = new WaterAnalysis(capacities);
+    }
+
+    /**
+     * Finds a shortest path for each amount, calling answer once per amount in the order the paths are found.
+     *  If the search reaches a limit of its SolveOptions, the amounts it did not reach yet are not answered,
+     *  and getStatus() tells which limit stopped it.
+     * @param amounts The amounts wanted, or null for every amount from 0 to the largest capacity that is a multiple
+     *                of the gcd of the capacities
+     * @param answer Called with each amount and its path, an empty path if the amount can not be measured
+     */
+    public void solve(int[] amounts, Answer answer){
+        startSearch();
+        if(amounts == null){
+            List<Integer> candidates = new ArrayList<>();
+            for(int amount = 0; amount <= analysis.getLargest(); amount++)
+                if(analysis.whyUnsolvable(amount) == null) candidates.add(amount);
+            amounts = candidates.stream().mapToInt(Integer::intValue).toArray();
+        }
+        boolean[] wanted = new boolean[analysis.getLargest() + 1];
+        int[] pending = {0};
+        for(int amount : amounts){
+            if(analysis.whyUnsolvable(amount) != null){
+                answer.accept(amount, new ArrayList<>());
+            } else if(!wanted[amount]){
+                wanted[amount] = true;
+                pending[0]++;
+            }
+        }
+        int[] searched = new int[pending[0]];
+        for(int amount = 0, i = 0; amount < wanted.length; amount++)
+            if(wanted[amount]) searched[i++] = amount;
+        StateTable visited = new StateTable(1024);
+        int start = visited.add(new WaterConfig(new int[capacities.length], new Water(searched, capacities)),
+                StateTable.NO_PARENT);
+        totalConfigs = 1;
+        pending[0] -= answerAll(visited, start, wanted, answer);
+        for(int head = 0; head < visited.size() && pending[0] > 0 && !isStopped(); head++){
+            int parent = head;
+            expandedConfigs++;
+            visited.get(head).forEachNeighbor(neighbor -> {
+                totalConfigs++;
+                int index = visited.add(neighbor, parent);
+                if(index != -1) pending[0] -= answerAll(visited, index, wanted, answer);
+                return pending[0] > 0;
+            });
+        }
+        uniqueConfigs = visited.size();
+        endSearch(pending[0] == 0);
+        if(status == SolveStatus.SOLVED || status == SolveStatus.NO_SOLUTION)
+            for(int amount = 0; amount < wanted.length; amount++)
+                if(wanted[amount]) answer.accept(amount, new ArrayList<>());
+    }
+
+    /** Public getter for what the capacities rule out */
+    public WaterAnalysis getAnalysis() { return analysis; }
+
+    /**
+     * Private helper that answers every wanted amount held by a state
+     * @param visited The visited states
+     * @param index The index of the state
+     * @param wanted The amounts still wanted, answered amounts are cleared
+     * @param answer Called with each amount and its path
+     * @return The amount of amounts answered
+     */
+    private int answerAll(StateTable visited, int index, boolean[] wanted, Answer answer){
+        int answered = 0;
+        List<Configuration> path = null;
+        Configuration config = visited.get(index);
+        if(!config.isSolution()) return 0;
+        for(int amount : ((WaterConfig) config).getAmounts()){
+            if(!wanted[amount]) continue;
+            wanted[amount] = false;
+            answered++;
+            if(path == null){
+                path = visited.pathTo(index);
+                if(WaterConfig.CANONICAL) path = Configuration.relabel(path);
+            }
+            answer.accept(amount, path);
+        }
+        return answered;
+    }
+
+    /** Receives the answers of WaterBatch.solve() */
+    @FunctionalInterface
+    public interface Answer {
+        /**
+         * Receives the shortest path for one amount
+         * @param amount The amount
+         * @param path The path from empty buckets to a state holding the amount, empty if there is none
+         */
+        void accept(int amount, List<Configuration> path);
+    }
+}
@@ -5,10 +5,19 @@ import solver.*;
 import java.util.*;
 
 public class WaterConfig implements Configuration {
+    /**
+     * True to treat buckets of equal capacity as interchangeable, set with -Dwater.canonical. Two WaterConfigs
+     *  whose amounts only differ by a trade between buckets of equal capacity are then equal, so a search sees
+     *  each such state once
+     */
+    public static final boolean CANONICAL = Boolean.getBoolean("water.canonical");
+
     /** The amounts in each of the buckets in this configuration */
     private final int[] theseAmounts;
     /** A reference to the puzzle being solved */
     private final Water puzzle;
+    /** The amounts in the canonical layout of Water.canonicalOrder(), or null until they are needed */
+    private int[] canonicalAmounts = null;
 
     /**
      * Public constructor for WaterConfig to initialize a configuration with the
@@ -23,76 +32,145 @@ public class WaterConfig implements Configuration {
 
     /**
      * A WaterConfig is a solution if one of its buckets has a value equal to
-     *  amount in the puzzle
+     *  an amount in the puzzle
      * @return True if this is a solution, False otherwise
      */
     @Override
     public boolean isSolution() {
         for(int amount : theseAmounts)
-            if(amount == puzzle.getSolution())
+            if(puzzle.isWanted(amount))
                 return true;
         return false;
     }
 
+    /**
+     * Every move changes at most two buckets by amounts that depend on all the capacities, so the only
+     *  safe estimate is that an unsolved WaterConfig needs at least one more move
+     * @return 0 if this is a solution, 1 otherwise
+     */
+    @Override
+    public int estimateDistance() {
+        return isSolution() ? 0 : 1;
+    }
+
     @Override
     public List<Configuration> getNeighbors() {
         List<Configuration> neighbors = new ArrayList<>();
+        forEachNeighbor(neighbors::add);
+        return neighbors;
+    }
+
+    /**
+     * Streams the neighbors without building a list: for each bucket, emptying it, filling it and pouring
+     *  it into every other bucket that is not full, skipping a pour that exactly fills the other bucket
+     * @param visitor Called with each neighbor, returns false to stop
+     * @return True if every neighbor was visited, false if the visitor stopped early
+     */
+    @Override
+    public boolean forEachNeighbor(Visitor visitor) {
         int[] capacities = puzzle.getBucketCapacities();
         for(int i = 0; i < theseAmounts.length; i++) {
             if (theseAmounts[i] != 0) {
                 int[] neighbor = theseAmounts.clone();
                 neighbor[i] = 0;
-                neighbors.add(new WaterConfig(neighbor, puzzle));
+                if(!visitor.visit(new WaterConfig(neighbor, puzzle))) return false;
             }
             if(theseAmounts[i] != capacities[i]){
                 int[] neighbor = theseAmounts.clone();
                 neighbor[i] = capacities[i];
-                neighbors.add(new WaterConfig(neighbor, puzzle));
+                if(!visitor.visit(new WaterConfig(neighbor, puzzle))) return false;
             }
             if(theseAmounts[i] != 0) {
-                List<Integer> unfilled = unfilledIndices(i, capacities);
-                for (Integer index : unfilled) {
+                for (int index = 0; index < capacities.length; index++) {
+                    if(index == i || theseAmounts[index] == capacities[index]) continue;
                     if(theseAmounts[i] < capacities[index] - theseAmounts[index]){
                         int[] neighbor = theseAmounts.clone();
                         neighbor[i] = 0;
                         neighbor[index] += theseAmounts[i];
-                        neighbors.add(new WaterConfig(neighbor, puzzle));
+                        if(!visitor.visit(new WaterConfig(neighbor, puzzle))) return false;
                     }
                     else if(theseAmounts[i] > capacities[index] - theseAmounts[index]){
                         int[] neighbor = theseAmounts.clone();
                         neighbor[i] -= (capacities[index] - theseAmounts[index]);
                         neighbor[index] = capacities[index];
-                        neighbors.add(new WaterConfig(neighbor, puzzle));
+                        if(!visitor.visit(new WaterConfig(neighbor, puzzle))) return false;
                     }
                 }
             }
         }
-        return neighbors;
+        return true;
+    }
+
+    /**
+     * Encodes the amounts as a mixed radix number when every state of the buckets fits into a long
+     * @return A WaterDomain starting from these amounts, or null if the capacities are too large
+     */
+    @Override
+    public SearchDomain getSearchDomain() {
+        if(!WaterDomain.canEncode(puzzle.getBucketCapacities())) return null;
+        return new WaterDomain(puzzle, theseAmounts);
+    }
+
+    /**
+     * Replays a move labelled by WaterDomain.forEachMove(), an empty, a fill or a pour. In canonical mode the
+     *  buckets of the label are positions in the canonical layout of these amounts.
+     * @param move The label of the move
+     * @return The WaterConfig the move leads to
+     */
+    @Override
+    public Configuration applyMove(int move) {
+        int[] capacities = puzzle.getBucketCapacities();
+        int n = theseAmounts.length;
+        int[] bucket = CANONICAL ? puzzle.canonicalOrder(theseAmounts) : null;
+        int[] neighbor = theseAmounts.clone();
+        if(move >= n * n) {
+            int filled = bucket == null ? move - n * n : bucket[move - n * n];
+            neighbor[filled] = capacities[filled];
+        } else if(move / n == move % n) {
+            neighbor[bucket == null ? move / n : bucket[move / n]] = 0;
+        } else {
+            int from = bucket == null ? move / n : bucket[move / n];
+            int to = bucket == null ? move % n : bucket[move % n];
+            int poured = Math.min(theseAmounts[from], capacities[to] - theseAmounts[to]);
+            neighbor[from] -= poured;
+            neighbor[to] += poured;
+        }
+        return new WaterConfig(neighbor, puzzle);
     }
 
     /**
-     * A private helper function to getNeighbors that returns all the values of an int array
-     *  that are below their corresponding capacity and are not at the index provided as a parameter
-     * @param index The excluded index
-     * @param capacities The corresponding capacities
-     * @return A list of ints that represent the unfilled Indices, if list has size 0 there are no indices that are unfilled
+     * Package private getter for the amounts, used by WaterDomain to encode this config
+     * @return The amounts in the buckets, not a copy
+     */
+    int[] getAmounts() { return theseAmounts; }
+
+    /**
+     * Private helper that gets the amounts in the canonical layout, computed once per WaterConfig
+     * @return The amounts, theseAmounts itself if no two buckets have the same capacity
      */
-    private List<Integer> unfilledIndices(int index, int[] capacities){
-        List<Integer> indices = new ArrayList<>();
-        for(int i = 0; i < capacities.length; i++)
-            if(i != index && theseAmounts[i] != capacities[i]) indices.add(i);
-        return indices;
+    private int[] getCanonicalAmounts(){
+        if(canonicalAmounts == null){
+            if(puzzle.getSymmetricGroups().length == 0){
+                canonicalAmounts = theseAmounts;
+            } else {
+                int[] order = puzzle.canonicalOrder(theseAmounts);
+                canonicalAmounts = new int[theseAmounts.length];
+                for(int i = 0; i < order.length; i++) canonicalAmounts[i] = theseAmounts[order[i]];
+            }
+        }
+        return canonicalAmounts;
     }
 
     /**
      * Implemented so that WaterConfigs can be uniquely hashable in a HashMap
      * @param other The object being compared
-     * @return True if the array theseAmounts are equal, False otherwise
+     * @return True if the array theseAmounts are equal, or their canonical layouts in canonical mode, False otherwise
      */
     @Override
     public boolean equals(Object other){
         if(other instanceof WaterConfig){
             WaterConfig otherConfig = (WaterConfig) other;
+            if(CANONICAL) return Arrays.equals(getCanonicalAmounts(), otherConfig.getCanonicalAmounts());
             return Arrays.equals(theseAmounts, otherConfig.theseAmounts);
         }
         return false;
@@ -104,7 +182,7 @@ public class WaterConfig implements Configuration {
      */
     @Override
     public int hashCode(){
-        return Arrays.hashCode(theseAmounts);
+        return Arrays.hashCode(CANONICAL ? getCanonicalAmounts() : theseAmounts);
     }
 
     /**
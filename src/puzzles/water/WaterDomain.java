@@ -0,0 +1,225 @@
+package puzzles.water;
+
+import solver.Configuration;
+import solver.SearchDomain;
+
+import java.util.function.LongConsumer;
+
+/**
+ * SearchDomain for the water buckets puzzle. A state is the mixed radix number whose digits are the amounts in
+ *  the buckets, bucket i having the base capacities[i] + 1, so a move that changes a bucket by x changes the
+ *  code by x times the place value of that bucket. A move is labelled i * n + j for a pour from bucket i into
+ *  bucket j, i * n + i for emptying bucket i and n * n + i for filling it, n being the amount of buckets.
+ *  In canonical mode, see WaterConfig.CANONICAL, every code holds its amounts in the canonical layout of
+ *  Water.canonicalOrder(), and the buckets in the label of a move are positions in that layout.
+ *  Every code is below the product of the capacities + 1, so the codes are dense ranks and a DenseStateStore
+ *  can keep the visited states as one bit per code.
+ * @author Damon Gonzalez
+ */
+public class WaterDomain implements SearchDomain {
+    /** The most buckets whose moves can all be labelled by one byte */
+    public static final int MAX_BUCKETS = 15;
+
+    /** The puzzle being solved */
+    private final Water puzzle;
+    /** The capacities of the buckets */
+    private final int[] capacities;
+    /** The place value of each bucket in a code */
+    private final long[] placeValues;
+    /** Scratch space for the amounts of the state being expanded */
+    private final int[] amounts;
+    /** Scratch space for the amounts of a state being put in canonical layout */
+    private final int[] canonicalAmounts;
+    /** The groups of buckets of equal capacity, empty unless codes are kept canonical */
+    private final int[][] symmetricGroups;
+    /** The code of the start state */
+    private final long start;
+    /** The amount of codes, the product of the capacities + 1 */
+    private final long stateCount;
+
+    /**
+     * Public constructor for a WaterDomain, only valid if canEncode() is true for the capacities of the puzzle
+     * @param puzzle The puzzle being solved
+     * @param startAmounts The amounts in the buckets at the start of the search
+     */
+    public WaterDomain(Water puzzle, int[] startAmounts){
+        this.puzzle = puzzle;
+        this.capacities = puzzle.getBucketCapacities();
+        this.placeValues = new long[capacities.length];
+        this.amounts = new int[capacities.length];
+        this.canonicalAmounts = new int[capacities.length];
+        this.symmetricGroups = WaterConfig.CANONICAL ? puzzle.getSymmetricGroups() : new int[0][];
+        long placeValue = 1;
+        long code = 0;
+        for(int i = 0; i < capacities.length; i++){
+            placeValues[i] = placeValue;
+            code += startAmounts[i] * placeValue;
+            if(i + 1 < capacities.length) placeValue = Math.multiplyExact(placeValue, capacities[i] + 1L);
+        }
+        this.start = canonicalize(code);
+        this.stateCount = capacities.length == 0 ? 1 : placeValue * (capacities[capacities.length - 1] + 1L);
+    }
+
+    /**
+     * Checks if every state of a set of buckets fits into a long and every move into a byte
+     * @param capacities The capacities of the buckets
+     * @return True if there are at most MAX_BUCKETS buckets and the product of all capacities + 1 is at most
+     *  Long.MAX_VALUE
+     */
+    public static boolean canEncode(int[] capacities){
+        if(capacities.length > MAX_BUCKETS) return false;
+        try {
+            long states = 1;
+            for(int capacity : capacities)
+                states = Math.multiplyExact(states, capacity + 1L);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long getStart() { return start; }
+
+    @Override
+    public boolean isSolution(long state){
+        for(int i = 0; i < capacities.length; i++)
+            if(puzzle.isWanted((int) (state / placeValues[i] % (capacities[i] + 1))))
+                return true;
+        return false;
+    }
+
+    /**
+     * Generates the same neighbors, in the same order, as WaterConfig.getNeighbors()
+     * @param state The encoded amounts
+     * @param action Called with each neighbor
+     */
+    @Override
+    public void forEachNeighbor(long state, LongConsumer action){
+        expand(state, action, null);
+    }
+
+    /**
+     * Generates the same neighbors, in the same order, as WaterConfig.getNeighbors(), each labelled by the
+     *  empty, fill or pour that reaches it
+     * @param state The encoded amounts
+     * @param action Called with each neighbor and its move
+     */
+    @Override
+    public void forEachMove(long state, MoveConsumer action){
+        expand(state, null, action);
+    }
+
+    /**
+     * Private helper that generates the neighbors of a state for forEachNeighbor() and forEachMove(), without
+     *  allocating
+     * @param state The encoded amounts
+     * @param plain Called with each neighbor, or null
+     * @param labelled Called with each neighbor and its move, or null
+     */
+    private void expand(long state, LongConsumer plain, MoveConsumer labelled){
+        int n = capacities.length;
+        for(int i = 0; i < n; i++)
+            amounts[i] = (int) ((state / placeValues[i]) % (capacities[i] + 1));
+        for(int i = 0; i < n; i++){
+            int amount = amounts[i];
+            if(amount != 0)
+                emit(plain, labelled, state - amount * placeValues[i], i * n + i);
+            if(amount != capacities[i])
+                emit(plain, labelled, state + (capacities[i] - amount) * placeValues[i], n * n + i);
+            if(amount != 0){
+                for(int j = 0; j < n; j++){
+                    if(j == i || amounts[j] == capacities[j]) continue;
+                    int space = capacities[j] - amounts[j];
+                    if(amount < space)
+                        emit(plain, labelled, state - amount * placeValues[i] + amount * placeValues[j], i * n + j);
+                    else if(amount > space)
+                        emit(plain, labelled, state - space * placeValues[i] + space * placeValues[j], i * n + j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Private helper that hands a neighbor, in canonical layout if codes are kept canonical, to whichever
+     *  consumer expand() was given
+     * @param plain Called with the neighbor, or null
+     * @param labelled Called with the neighbor and its move, or null
+     * @param neighbor The encoded neighbor
+     * @param move The label of the move
+     */
+    private void emit(LongConsumer plain, MoveConsumer labelled, long neighbor, int move){
+        long code = canonicalize(neighbor);
+        if(plain != null) plain.accept(code);
+        else labelled.accept(code, move);
+    }
+
+    @Override
+    public String describeMove(int move){
+        int n = capacities.length;
+        if(move >= n * n) return "fill " + (move - n * n);
+        if(move / n == move % n) return "empty " + move / n;
+        return "pour " + move / n + " into " + move % n;
+    }
+
+    /**
+     * The largest code is the one with every bucket full
+     * @return The amount of bytes that holds the largest code
+     */
+    @Override
+    public int getStateBytes(){
+        long largest = 0;
+        for(int i = 0; i < capacities.length; i++)
+            largest += capacities[i] * placeValues[i];
+        return SearchDomain.bytesFor(Long.SIZE - Long.numberOfLeadingZeros(largest));
+    }
+
+    @Override
+    public Configuration decode(long state){
+        int[] decoded = new int[capacities.length];
+        for(int i = 0; i < capacities.length; i++)
+            decoded[i] = (int) ((state / placeValues[i]) % (capacities[i] + 1));
+        return new WaterConfig(decoded, puzzle);
+    }
+
+    @Override
+    public long encode(Configuration config){
+        int[] encoded = ((WaterConfig) config).getAmounts();
+        long code = 0;
+        for(int i = 0; i < capacities.length; i++)
+            code += encoded[i] * placeValues[i];
+        return canonicalize(code);
+    }
+
+    @Override
+    public long getStateCount() { return stateCount; }
+
+    @Override
+    public long getEncodingId() { return symmetricGroups.length == 0 ? 0 : 1; }
+
+    /**
+     * Private helper that sorts the amounts within each group of buckets of equal capacity
+     * @param state The encoded amounts
+     * @return The code of the canonical layout, state itself when codes are not kept canonical
+     */
+    private long canonicalize(long state){
+        if(symmetricGroups.length == 0) return state;
+        for(int i = 0; i < capacities.length; i++)
+            canonicalAmounts[i] = (int) ((state / placeValues[i]) % (capacities[i] + 1));
+        long code = state;
+        for(int[] group : symmetricGroups){
+            for(int i = 1; i < group.length; i++){ //Insertion sort, groups are small
+                int amount = canonicalAmounts[group[i]];
+                int j = i;
+                while(j > 0 && canonicalAmounts[group[j - 1]] > amount){
+                    canonicalAmounts[group[j]] = canonicalAmounts[group[j - 1]];
+                    j--;
+                }
+                canonicalAmounts[group[j]] = amount;
+            }
+            for(int bucket : group)
+                code += (canonicalAmounts[bucket] - (state / placeValues[bucket]) % (capacities[bucket] + 1)) * placeValues[bucket];
+        }
+        return code;
+    }
+}
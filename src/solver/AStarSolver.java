@@ -0,0 +1,68 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Solver that uses the A* algorithm, guided by Configuration.estimateDistance(). Every move costs 1, so the
+ *  open list is a BucketQueue ordered by moves so far plus the estimate. States are reopened when a shorter
+ *  way to them is found, so the path is the shortest one as long as the estimate never overestimates.
+ * @author Damon Gonzalez
+ */
+public class AStarSolver extends Solver {
+
+    /**
+     * A* version of the BFS algorithm. The total configs are the configs generated, like in the BFS, and the
+     * expanded configs are the ones whose neighbors were generated.
+     * @param startConfig The initial Configuration
+     * @return The path that is calculated, empty if there is no path
+     */
+    @Override
+    public List<Configuration> BFS(Configuration startConfig){
+        startSearch();
+        StateTable visited = new StateTable(1024);
+        int[] costs = new int[1024];
+        int[] estimates = new int[1024];
+        BucketQueue open = new BucketQueue();
+        int start = visited.add(startConfig, StateTable.NO_PARENT);
+        estimates[start] = startConfig.estimateDistance();
+        open.add(start, estimates[start]);
+        totalConfigs = 1;
+        int solution = -1;
+        while(!open.isEmpty() && !isStopped()){
+            int priority = open.peekPriority();
+            int current = open.remove();
+            if(costs[current] + estimates[current] != priority) continue;//A SHORTER WAY WAS FOUND AFTER THIS WAS ADDED
+            Configuration currentConfig = visited.get(current);
+            if(currentConfig.isSolution()){
+                solution = current;
+                break;
+            }
+            expandedConfigs++;
+            List<Configuration> neighbors = currentConfig.getNeighbors();
+            totalConfigs += neighbors.size();
+            int cost = costs[current] + 1;
+            for(Configuration neighbor : neighbors){
+                int index = visited.add(neighbor, current);
+                if(index == -1){
+                    index = visited.indexOf(neighbor);
+                    if(cost >= costs[index]) continue;
+                    visited.setParent(index, current);
+                } else {
+                    if(index == costs.length){
+                        costs = Arrays.copyOf(costs, index << 1);
+                        estimates = Arrays.copyOf(estimates, index << 1);
+                    }
+                    estimates[index] = neighbor.estimateDistance();
+                }
+                costs[index] = cost;
+                open.add(index, cost + estimates[index]);
+            }
+        }
+        uniqueConfigs = visited.size();
+        endSearch(solution != -1);
+        if(solution == -1) return new ArrayList<>();
+        return visited.pathTo(solution);
+    }
+}
@@ -0,0 +1,132 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Solver that searches forwards from the start and backwards from the goal at the same time, one level at
+ *  a time on whichever side has the smaller frontier, and stitches the two halves together where they meet.
+ *  It needs the puzzle to name its single goal through Configuration.getGoalConfig() and to generate predecessors;
+ *  when getGoalConfig() returns null the plain BFS is used instead.
+ * @author Damon Gonzalez
+ */
+public class BidirectionalSolver extends Solver {
+
+    /**
+     * Bidirectional version of the BFS algorithm, falls back to the plain BFS for puzzles without a single goal.
+     * The limits of the SolveOptions are checked before each level.
+     * @param startConfig The initial Configuration
+     * @return The path that is calculated, empty if there is no path
+     */
+    @Override
+    public List<Configuration> BFS(Configuration startConfig){
+        Configuration goalConfig = startConfig.getGoalConfig();
+        if(goalConfig == null) return super.BFS(startConfig);
+        startSearch();
+        Side forward = new Side(startConfig, false);
+        Side backward = new Side(goalConfig, true);
+        totalConfigs = 2;
+        List<Configuration> path = new ArrayList<>();
+        if(startConfig.isSolution()){
+            path.add(startConfig);
+        } else {
+            while(!forward.isExhausted() && !backward.isExhausted() && !isStopped()){
+                boolean forwardTurn = forward.levelSize() <= backward.levelSize();
+                Side expanding = forwardTurn ? forward : backward;
+                Side other = forwardTurn ? backward : forward;
+                expandedConfigs += expanding.levelSize();
+                int[] meeting = expanding.expandLevel(other);
+                if(meeting != null){
+                    int forwardIndex = forwardTurn ? meeting[0] : meeting[1];
+                    int backwardIndex = forwardTurn ? meeting[1] : meeting[0];
+                    path = forward.table.pathTo(forwardIndex);
+                    List<Configuration> rest = backward.table.pathTo(backwardIndex);
+                    Collections.reverse(rest);
+                    path.addAll(rest.subList(1, rest.size()));
+                    break;
+                }
+            }
+        }
+        totalConfigs += forward.generated + backward.generated;
+        uniqueConfigs = forward.table.size() + backward.table.size();
+        endSearch(!path.isEmpty());
+        return path;
+    }
+
+    /**
+     * One direction of the search. The states of each level are contiguous in the table, so the depth of any
+     *  state can be found from the indices where the levels start.
+     */
+    private static class Side {
+        /** The states reached by this side, each with its parent in this direction */
+        private final StateTable table = new StateTable(1024);
+        /** True if this side generates predecessors instead of neighbors */
+        private final boolean reverse;
+        /** The index in table where each level starts, the last entry is where the next level starts */
+        private int[] levelStarts = new int[16];
+        /** The amount of completed levels */
+        private int levels = 1;
+        /** The amount of Configurations generated by this side */
+        private int generated = 0;
+
+        /**
+         * Constructor for one side of the search
+         * @param root The Configuration this side starts from
+         * @param reverse True if this side searches backwards
+         */
+        private Side(Configuration root, boolean reverse){
+            this.reverse = reverse;
+            table.add(root, StateTable.NO_PARENT);
+            levelStarts[1] = 1;
+        }
+
+        /** Returns true if the last level is empty, which means this side has seen every state it can reach */
+        private boolean isExhausted() { return levelSize() == 0; }
+
+        /** Returns the amount of states in the last level */
+        private int levelSize() { return levelStarts[levels] - levelStarts[levels - 1]; }
+
+        /**
+         * Returns the depth of a state in this side
+         * @param index The index of the state in table
+         * @return The amount of moves between the root and the state
+         */
+        private int depthOf(int index){
+            int position = Arrays.binarySearch(levelStarts, 0, levels + 1, index);
+            return position >= 0 ? position : -position - 2;
+        }
+
+        /**
+         * Expands every state of the last level and checks each new state against the other side. The whole level
+         * is expanded before returning so that the shortest of the meetings in this level is the one chosen.
+         * @param other The other side of the search
+         * @return The index of the meeting state in this side and in the other side, or null if they did not meet
+         */
+        private int[] expandLevel(Side other){
+            int from = levelStarts[levels - 1];
+            int to = levelStarts[levels];
+            int[] best = null;
+            int bestDepth = Integer.MAX_VALUE;
+            for(int current = from; current < to; current++){
+                Configuration config = table.get(current);
+                List<Configuration> next = reverse ? config.getPredecessors() : config.getNeighbors();
+                generated += next.size();
+                for(Configuration neighbor : next){
+                    int index = table.add(neighbor, current);
+                    if(index == -1) continue;
+                    int otherIndex = other.table.indexOf(neighbor);
+                    if(otherIndex != -1 && other.depthOf(otherIndex) < bestDepth){
+                        best = new int[]{index, otherIndex};
+                        bestDepth = other.depthOf(otherIndex);
+                    }
+                }
+            }
+            if(levels + 1 == levelStarts.length) levelStarts = Arrays.copyOf(levelStarts, levelStarts.length << 1);
+            levels++;
+            levelStarts[levels] = table.size();
+            return best;
+        }
+    }
+}
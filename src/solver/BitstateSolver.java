@@ -0,0 +1,207 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * A Solver that remembers visited states only as bits. Each state of a SearchDomain sets k bits of a fixed size
+ *  bit array, and a state whose k bits are all set already is treated as visited (bitstate hashing). Two states
+ *  can share all k bits, so a few states may be skipped and the path found may not be the shortest, or a
+ *  solvable puzzle may be reported unsolvable; getOmissionProbability() estimates how likely that is. In
+ *  exchange the memory of the visited set is fixed no matter how many states are reached. When a path is
+ *  requested every level is kept as an array of codes, 8 bytes per state, and the path is rebuilt by a backward
+ *  pass, otherwise only the current and the next level are kept. Puzzles without a SearchDomain are solved
+ *  with the plain BFS.
+ * @author Damon Gonzalez
+ */
+public class BitstateSolver extends Solver {
+    /** The bit array, its amount of bits is a power of two */
+    private final long[] bits;
+    /** The amount of bits set per state */
+    private final int hashes;
+    /** True if the levels are kept to rebuild a path */
+    private final boolean keepPath;
+    /** The amount of bits set by the last search */
+    private long bitsSet = 0;
+    /** The amount of moves to the solution found by the last search, or -1 */
+    private int solutionDepth = -1;
+
+    /**
+     * Public constructor for a BitstateSolver
+     * @param bitCount The size of the bit array, rounded down to a power of two, at least 64
+     * @param hashes The amount of bits set per state, at least 1
+     * @param keepPath True to return a path, false to only find out if the puzzle is solvable, in which case
+     *                 BFS() returns an empty list, isSolvable() tells if a solution was found and
+     *                 getSolutionDepth() its depth
+     */
+    public BitstateSolver(long bitCount, int hashes, boolean keepPath){
+        if(hashes < 1) throw new IllegalArgumentException("hashes must be at least 1: " + hashes);
+        long words = Long.highestOneBit(Math.max(Long.SIZE, bitCount)) / Long.SIZE;
+        if(words > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("too many bits: " + bitCount);
+        this.bits = new long[(int) words];
+        this.hashes = hashes;
+        this.keepPath = keepPath;
+    }
+
+    /**
+     * Bitstate version of the BFS algorithm, uses the SearchDomain of the start if it has one.
+     * @param startConfig The initial Configuration
+     * @return The path that is calculated, empty if no solution was found
+     */
+    @Override
+    public List<Configuration> BFS(Configuration startConfig){
+        SearchDomain domain = startConfig.getSearchDomain();
+        if(domain == null) return super.BFS(startConfig);
+        return BFS(domain);
+    }
+
+    /**
+     * Runs the bitstate BFS algorithm over a SearchDomain, from its start state
+     * @param domain The puzzle being solved
+     * @return The path that is calculated, empty if no solution was found
+     */
+    public List<Configuration> BFS(SearchDomain domain){
+        startSearch();
+        Arrays.fill(bits, 0);
+        bitsSet = 0;
+        List<LongList> levels = new ArrayList<>();
+        LongList level = new LongList();
+        level.add(domain.getStart());
+        mark(domain.getStart());
+        totalConfigs = 1;
+        uniqueConfigs = 1;
+        solutionDepth = -1;
+        long solution = domain.getStart();
+        boolean solved = domain.isSolution(solution);
+        int depth = 0;
+        LongList[] next = {new LongList()};
+        LongConsumer expander = neighbor -> {
+            totalConfigs++;
+            if(mark(neighbor)) next[0].add(neighbor);
+        };
+        while(!solved && level.size > 0 && !isStopped()){
+            expandedConfigs += level.size;
+            if(keepPath) levels.add(level);
+            next[0] = new LongList();
+            for(int i = 0; i < level.size; i++)
+                domain.forEachNeighbor(level.values[i], expander);
+            level = next[0];
+            uniqueConfigs += level.size;
+            depth++;
+            for(int i = 0; i < level.size && !solved; i++){
+                if(domain.isSolution(level.values[i])){
+                    solved = true;
+                    solution = level.values[i];
+                }
+            }
+        }
+        endSearch(solved);
+        if(!solved) return new ArrayList<>();
+        solutionDepth = depth;
+        if(!keepPath) return new ArrayList<>();
+        return rebuildPath(domain, levels, solution);
+    }
+
+    /**
+     * Public getter for whether the results of this solver are exact
+     * @return False, a state can be skipped, so the path found may not be the shortest
+     */
+    @Override
+    public boolean isExact() { return false; }
+
+    /** Public getter for the amount of moves to the solution found by the last search, -1 if none was found */
+    public int getSolutionDepth() { return solutionDepth; }
+
+    /**
+     * Public getter for the fraction of bits set by the last search
+     * @return A number from 0 to 1
+     */
+    public double getFillRatio() { return (double) bitsSet / ((long) bits.length * Long.SIZE); }
+
+    /**
+     * Estimates the chance that a new state was treated as visited by the end of the last search, the chance
+     * that all of its k bits were already set, which is the fill ratio to the power of k
+     * @return A number from 0 to 1
+     */
+    public double getOmissionProbability() { return Math.pow(getFillRatio(), hashes); }
+
+    /**
+     * Private helper that sets the k bits of a state, using double hashing to derive the k bit positions
+     * @param state The state
+     * @return True if at least one of the bits was not set before, i.e. the state is new
+     */
+    private boolean mark(long state){
+        long mask = (long) bits.length * Long.SIZE - 1;
+        long first = mix(state);
+        long step = mix(first) | 1;
+        boolean isNew = false;
+        for(int i = 0; i < hashes; i++){
+            long bit = (first + i * step) & mask;
+            int word = (int) (bit >>> 6);
+            long flag = 1L << bit;
+            if((bits[word] & flag) == 0){
+                bits[word] |= flag;
+                bitsSet++;
+                isNew = true;
+            }
+        }
+        return isNew;
+    }
+
+    /**
+     * Private helper that scrambles all 64 bits of a long, the finalizer of MurmurHash3
+     * @param value The value
+     * @return The scrambled value
+     */
+    private static long mix(long value){
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Private helper that rebuilds the path backwards, for each level it finds a state whose neighbors include
+     *  the state chosen in the level after it
+     * @param domain The puzzle being solved
+     * @param levels Every level before the one holding the solution
+     * @param solution The solution that was found
+     * @return The path from the start to the solution
+     */
+    private static List<Configuration> rebuildPath(SearchDomain domain, List<LongList> levels, long solution){
+        List<Configuration> path = new ArrayList<>();
+        path.add(domain.decode(solution));
+        long target = solution;
+        for(int depth = levels.size() - 1; depth >= 0; depth--){
+            LongList level = levels.get(depth);
+            long child = target;
+            boolean[] isParent = {false};
+            for(int i = 0; i < level.size && !isParent[0]; i++){
+                domain.forEachNeighbor(level.values[i], neighbor -> isParent[0] |= neighbor == child);
+                if(isParent[0]) target = level.values[i];
+            }
+            path.add(domain.decode(target));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** A growable array of longs holding one level */
+    private static class LongList {
+        /** The values, only the first size are used */
+        private long[] values = new long[16];
+        /** The amount of values */
+        private int size = 0;
+
+        /** Appends a value */
+        private void add(long value){
+            if(size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = value;
+        }
+    }
+}
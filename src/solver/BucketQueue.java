@@ -0,0 +1,60 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue of ints for small non-negative integer priorities. Every priority has its own
+ *  IntRingBuffer, so adding and removing are constant time and elements with equal priority come out in the
+ *  order they were added.
+ * @author Damon Gonzalez
+ */
+public class BucketQueue {
+    /** One bucket per priority, created the first time the priority is used */
+    private IntRingBuffer[] buckets = new IntRingBuffer[64];
+    /** A priority no lower than the lowest non-empty bucket */
+    private int lowest = 0;
+    /** The amount of elements currently held */
+    private int size = 0;
+
+    /**
+     * Adds a value with a given priority
+     * @param value The value being added
+     * @param priority The priority of the value, lower values are removed first
+     */
+    public void add(int value, int priority){
+        if(priority < 0) throw new IllegalArgumentException("priority must not be negative: " + priority);
+        if(priority >= buckets.length)
+            buckets = Arrays.copyOf(buckets, Math.max(priority + 1, buckets.length << 1));
+        if(buckets[priority] == null) buckets[priority] = new IntRingBuffer(16);
+        buckets[priority].add(value);
+        if(priority < lowest) lowest = priority;
+        size++;
+    }
+
+    /**
+     * Returns the lowest priority of the values in the queue
+     * @return The priority of the value that remove() returns next
+     */
+    public int peekPriority(){
+        if(size == 0) throw new NoSuchElementException();
+        while(buckets[lowest] == null || buckets[lowest].isEmpty()) lowest++;
+        return lowest;
+    }
+
+    /**
+     * Removes and returns the oldest value with the lowest priority
+     * @return The value
+     */
+    public int remove(){
+        int value = buckets[peekPriority()].remove();
+        size--;
+        return value;
+    }
+
+    /** Public getter for the amount of elements in the queue */
+    public int size() { return size; }
+
+    /** Returns true if there are no elements in the queue */
+    public boolean isEmpty() { return size == 0; }
+}
@@ -0,0 +1,17 @@
+package solver;
+
+/**
+ * A flag that lets another thread, such as a user interface, ask a running search to stop. The search checks
+ *  it before every expansion and returns with SolveStatus.CANCELLED, keeping the statistics it had so far.
+ * @author Damon Gonzalez
+ */
+public class CancellationToken {
+    /** True once cancel() was called */
+    private volatile boolean cancelled = false;
+
+    /** Asks every search using this token to stop */
+    public void cancel() { cancelled = true; }
+
+    /** Returns true if cancel() was called */
+    public boolean isCancelled() { return cancelled; }
+}
@@ -1,5 +1,6 @@
 package solver;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,10 +13,92 @@ public interface Configuration {
     boolean isSolution();
     /** Uses 'this' and returns an array of Configurations that are its neighbors */
     List<Configuration> getNeighbors();
+    /**
+     * Hands the neighbors of 'this' to a visitor one at a time, in the order of getNeighbors(), without
+     * building a list. The default uses getNeighbors().
+     * @param visitor Called with each neighbor, returns false to stop before the rest are generated
+     * @return True if every neighbor was visited, false if the visitor stopped early
+     */
+    default boolean forEachNeighbor(Visitor visitor) {
+        for (Configuration neighbor : getNeighbors())
+            if (!visitor.visit(neighbor)) return false;
+        return true;
+    }
     /** To make all configurations uniquely hashable */
     boolean equals(Object other);
     /** To make all configurations uniquely hashable */
     int hashCode();
     /** So that a Configuration is easily representable in the step printout */
     String toString();
+    /**
+     * The single goal Configuration of the puzzle, used by BidirectionalSolver to search backwards.
+     * Puzzles whose solutions are not one explicit state keep this default.
+     * @return The goal Configuration, or null if the goal is not a single state
+     */
+    default Configuration getGoalConfig() { return null; }
+    /**
+     * Uses 'this' and returns the Configurations that have 'this' as one of their neighbors. BidirectionalSolver
+     * only searches backwards from puzzles whose getGoalConfig() is not null, and those must implement this;
+     * the default returns none, so it is safe to call on any puzzle.
+     * @return The predecessors of this Configuration
+     */
+    default List<Configuration> getPredecessors() { return new ArrayList<>(); }
+    /**
+     * A lower bound on the amount of moves from 'this' to the nearest solution, used by AStarSolver.
+     * It must never overestimate or the path found is not guaranteed to be the shortest. The default
+     * of 0 turns the search into a plain uniform cost search.
+     * @return The estimated distance, 0 if 'this' is a solution
+     */
+    default int estimateDistance() { return 0; }
+    /**
+     * A SearchDomain that starts from 'this' and encodes every state as a long, used by EncodedSolver.
+     * @return The SearchDomain, or null if the puzzle can not be encoded
+     */
+    default SearchDomain getSearchDomain() { return null; }
+    /**
+     * Replays a move labelled by SearchDomain.forEachMove(). By default the label is the position of the
+     * neighbor in getNeighbors().
+     * @param move The label of the move
+     * @return The Configuration the move leads to
+     */
+    default Configuration applyMove(int move) { return getNeighbors().get(move); }
+    /**
+     * Finds the neighbor of 'this' that equals another Configuration. A puzzle whose equals() ignores a detail of
+     * its states, like which of two identical pieces stands where, can be handed back states by a search whose
+     * detail differs from what a real move gives; this gives the state the move really leads to.
+     * @param target A Configuration one move away from 'this'
+     * @return The neighbor equal to target, or target if there is none
+     */
+    default Configuration stepTo(Configuration target) {
+        Configuration[] found = {target};
+        forEachNeighbor(neighbor -> {
+            if (!neighbor.equals(target)) return true;
+            found[0] = neighbor;
+            return false;
+        });
+        return found[0];
+    }
+    /**
+     * Rebuilds a path from its first Configuration with stepTo(), so that every state shows the details it
+     * really has when the moves are made from the start
+     * @param path A path found by a search
+     * @return The same path, with the real details
+     */
+    static List<Configuration> relabel(List<Configuration> path) {
+        List<Configuration> relabelled = new ArrayList<>(path.size());
+        for (Configuration config : path)
+            relabelled.add(relabelled.isEmpty() ? config : relabelled.get(relabelled.size() - 1).stepTo(config));
+        return relabelled;
+    }
+
+    /** Receives the neighbors of a Configuration from forEachNeighbor() */
+    @FunctionalInterface
+    interface Visitor {
+        /**
+         * Receives one neighbor
+         * @param neighbor The neighbor
+         * @return True to keep going, false to stop generating neighbors
+         */
+        boolean visit(Configuration neighbor);
+    }
 }
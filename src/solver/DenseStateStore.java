@@ -0,0 +1,105 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * A StateStore for a SearchDomain whose codes are dense ranks, every code a number from 0 to
+ *  SearchDomain.getStateCount() - 1, like the mixed radix codes of the water buckets. A state is visited if its
+ *  bit is set in a bit array with one bit per rank, so adding a state is one load and one store instead of a
+ *  hash probe, and the ranks, parents and moves of the visited states are kept in primitive arrays in the order
+ *  they were added. Each visited state takes 9 bytes, and the bit array one bit per rank whether it is reached
+ *  or not, so the store suits puzzles that reach a good fraction of their ranks.
+ * @author Damon Gonzalez
+ */
+public class DenseStateStore implements StateStore {
+    /** The most ranks a store can hold, the ranks are kept as ints */
+    public static final long MAX_STATES = Integer.MAX_VALUE;
+
+    /** One bit per rank, set if the state with that rank was added */
+    private final long[] visited;
+    /** The ranks in the order they were added */
+    private int[] states;
+    /** The index of the parent of each state */
+    private int[] parents;
+    /** The label of the move that reached each state */
+    private byte[] moves;
+    /** The amount of states in this store */
+    private int size = 0;
+
+    /**
+     * Public constructor for a DenseStateStore
+     * @param stateCount The amount of ranks, from 1 to MAX_STATES
+     * @param expectedStates The amount of states expected to be added, the arrays grow when more are added
+     */
+    public DenseStateStore(long stateCount, int expectedStates){
+        if(stateCount < 1 || stateCount > MAX_STATES)
+            throw new IllegalArgumentException("the ranks do not fit into an int: " + stateCount);
+        this.visited = new long[(int) ((stateCount + Long.SIZE - 1) / Long.SIZE)];
+        int capacity = (int) Math.min(stateCount, Math.max(16, expectedStates));
+        this.states = new int[capacity];
+        this.parents = new int[capacity];
+        this.moves = new byte[capacity];
+    }
+
+    /**
+     * Adds a state to the store if it is not already in it
+     * @param state The rank of the state, from 0 to the amount of ranks - 1
+     * @param parent The index of the state it was generated from, or StateTable.NO_PARENT
+     * @param move The label of the move from the parent, from 0 to 255
+     * @return The index of the new state, or -1 if it was already in the store
+     */
+    @Override
+    public int add(long state, int parent, int move){
+        int word = (int) (state >>> 6);
+        long bit = 1L << state;
+        if((visited[word] & bit) != 0) return -1;
+        visited[word] |= bit;
+        if(size == states.length){
+            int capacity = (int) Math.min(MAX_STATES, (long) size << 1);
+            states = Arrays.copyOf(states, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            moves = Arrays.copyOf(moves, capacity);
+        }
+        states[size] = (int) state;
+        parents[size] = parent;
+        moves[size] = (byte) move;
+        return size++;
+    }
+
+    /**
+     * Public getter for a state in the store
+     * @param index The index of the state
+     * @return The rank of the state at that index
+     */
+    @Override
+    public long get(int index) { return states[index]; }
+
+    /**
+     * Public getter for the parent of a state in the store
+     * @param index The index of the state
+     * @return The index of its parent, or StateTable.NO_PARENT if it is the start
+     */
+    @Override
+    public int getParent(int index) { return parents[index]; }
+
+    /**
+     * Public getter for the move that reached a state in the store
+     * @param index The index of the state
+     * @return The label of the move, from 0 to 255
+     */
+    @Override
+    public int getMove(int index) { return moves[index] & 0xFF; }
+
+    /** Public getter for the amount of states in the store */
+    @Override
+    public int size() { return size; }
+
+    /**
+     * Public getter for the memory held by the arrays of this store
+     * @return The amount of bytes in the bit array and the states, parents and moves arrays
+     */
+    @Override
+    public long getBytesUsed(){
+        return (long) visited.length * Long.BYTES + (long) states.length * (Integer.BYTES + Integer.BYTES + 1);
+    }
+}
@@ -0,0 +1,347 @@
+package solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * The distance from every reachable state of a puzzle to its nearest solution, so that a hint is a table lookup
+ *  instead of a search. It is built once by exploring everything reachable from the start of a SearchDomain and
+ *  then running a breadth first search backwards from every solution at once over the reversed moves (a
+ *  retrograde analysis). The table is an open addressing hash of the codes with a distance next to each one,
+ *  laid out exactly as it is saved, so a saved table is used straight from a memory mapped file.
+ *  The file starts with a header of MAGIC, VERSION, the checksum of the puzzle, the start code, the amount of
+ *  states and the amount of slots, followed by the code of every slot and the distance of every slot.
+ *  A puzzle with too many states gets a file too, made of the header alone with TOO_LARGE as its amount of
+ *  states and the limit that was exceeded in place of the amount of slots, so that the exploration is not
+ *  repeated every time the puzzle is loaded, unless the limit is raised. A puzzle with a distance too long to
+ *  store gets the same header with TOO_DEEP, and is not explored again whatever the limit.
+ *  Building can take a while, so forPuzzleAsync() does it on a thread of its own.
+ * @author Damon Gonzalez
+ */
+public class DistanceOracle {
+    /** The distance of a state that can not reach a solution */
+    public static final int UNSOLVABLE = -1;
+    /** The distance of a state that was not reachable from the start, so it is not in the table */
+    public static final int UNKNOWN = -2;
+    /** The first bytes of every file, "DIST" */
+    private static final int MAGIC = 0x44495354;
+    /** The version of the file layout */
+    private static final int VERSION = 1;
+    /** The size of the header in bytes */
+    private static final int HEADER_BYTES = 32;
+    /** The distance entry of an empty slot */
+    private static final short EMPTY = 0;
+    /** The distance entry of a state that can not reach a solution, other entries are distance + 1 */
+    private static final short NO_PATH = (short) 0xFFFF;
+    /** The largest distance that can be stored */
+    private static final int MAX_DISTANCE = 0xFFFD;
+    /** The amount of states in the header of a file that marks a puzzle as too large for a table */
+    private static final int TOO_LARGE = -1;
+    /** The amount of states in the header of a file that marks a puzzle whose distances do not fit */
+    private static final int TOO_DEEP = -2;
+    /** The thread that builds the tables asked for by forPuzzleAsync(), one at a time */
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "DistanceOracle builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The puzzle the codes belong to */
+    private final SearchDomain domain;
+    /** The table, on the heap after build() and memory mapped after load() */
+    private final ByteBuffer table;
+    /** The amount of slots, a power of two */
+    private final int capacity;
+    /** The amount of states in the table */
+    private final int count;
+
+    /**
+     * Private constructor around a filled table
+     * @param domain The puzzle the codes belong to
+     * @param table The table, including its header
+     */
+    private DistanceOracle(SearchDomain domain, ByteBuffer table){
+        this.domain = domain;
+        this.table = table;
+        this.count = table.getInt(24);
+        this.capacity = table.getInt(28);
+    }
+
+    /**
+     * Computes the distance of every state reachable from the start of a domain. The states are explored first,
+     *  counting the moves into each of them, and the reversed moves are only stored once it is known that there
+     *  are at most maxStates states, in arrays of exactly the size counted.
+     * @param domain The puzzle
+     * @param checksum The checksum of the puzzle, stored so that a saved table is not used for a changed puzzle
+     * @param maxStates The most states to explore, so that a huge puzzle does not use up the heap
+     * @return The oracle, or null if more than maxStates states are reachable or a distance does not fit
+     */
+    public static DistanceOracle build(SearchDomain domain, long checksum, int maxStates){
+        DistanceOracle oracle = explore(domain, checksum, maxStates);
+        return oracle.count < 0 ? null : oracle;
+    }
+
+    /**
+     * Private helper that builds the table, or the header that marks why there is none
+     * @param domain The puzzle
+     * @param checksum The checksum of the puzzle
+     * @param maxStates The most states to explore
+     * @return The oracle, whose amount of states is TOO_LARGE or TOO_DEEP if it has no table
+     */
+    private static DistanceOracle explore(SearchDomain domain, long checksum, int maxStates){
+        LongStateTable states = new LongStateTable(1024);
+        states.add(domain.getStart(), StateTable.NO_PARENT, 0);
+        int[][] firstPredecessor = {new int[1024]};//THE AMOUNT OF MOVES INTO EACH STATE, SHIFTED BY ONE
+        for(int head = 0; head < states.size(); head++){
+            domain.forEachNeighbor(states.get(head), neighbor -> {
+                int to = states.add(neighbor, StateTable.NO_PARENT, 0);
+                if(to == -1) to = states.indexOf(neighbor);
+                if(to + 1 >= firstPredecessor[0].length)
+                    firstPredecessor[0] = Arrays.copyOf(firstPredecessor[0], firstPredecessor[0].length << 1);
+                firstPredecessor[0][to + 1]++;
+            });
+            if(states.size() > maxStates) return marker(domain, checksum, TOO_LARGE, maxStates);
+        }
+        int[] distances = retrograde(domain, states, Arrays.copyOf(firstPredecessor[0], states.size() + 1));
+        for(int distance : distances) if(distance > MAX_DISTANCE) return marker(domain, checksum, TOO_DEEP, 0);
+        int capacity = Integer.highestOneBit(Math.max(1, states.size())) << 2;
+        ByteBuffer table = ByteBuffer.allocate(HEADER_BYTES + capacity * (Long.BYTES + Short.BYTES));
+        table.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, checksum).putLong(16, domain.getStart())
+                .putInt(24, states.size()).putInt(28, capacity);
+        for(int index = 0; index < states.size(); index++){
+            int slot = LongStateTable.hash(states.get(index)) & (capacity - 1);
+            while(table.getShort(distanceOffset(capacity, slot)) != EMPTY) slot = (slot + 1) & (capacity - 1);
+            table.putLong(codeOffset(slot), states.get(index));
+            table.putShort(distanceOffset(capacity, slot),
+                    distances[index] == UNSOLVABLE ? NO_PATH : (short) (distances[index] + 1));
+        }
+        return new DistanceOracle(domain, table);
+    }
+
+    /**
+     * Maps a saved table, if it was made for the same puzzle
+     * @param domain The puzzle
+     * @param checksum The checksum of the puzzle
+     * @param file The saved table
+     * @return The oracle, or null if the file is missing, damaged or made for another puzzle
+     */
+    public static DistanceOracle load(SearchDomain domain, long checksum, Path file) throws IOException {
+        if(!Files.isRegularFile(file) || Files.size(file) < HEADER_BYTES) return null;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(table.getInt(0) != MAGIC || table.getInt(4) != VERSION || table.getLong(8) != checksum
+                    || table.getLong(16) != domain.getStart() || table.getInt(24) < 0) return null;
+            long capacity = table.getInt(28);
+            if(Long.bitCount(capacity) != 1 || channel.size() != HEADER_BYTES + capacity * (Long.BYTES + Short.BYTES))
+                return null;
+            return new DistanceOracle(domain, table);
+        }
+    }
+
+    /**
+     * Loads the table saved for a puzzle file, or builds and saves it if there is none yet. The table is kept
+     *  next to the puzzle, with the extension .dist, and is only used for the same file and the same encoding.
+     *  A table that can not be saved is still returned. When the puzzle has too many states that is saved
+     *  instead, and the puzzle is not explored again until maxStates is raised above the limit it exceeded,
+     *  and when a distance is too long to store, the puzzle is not explored again at all.
+     * @param domain The puzzle, starting from the configuration in the file
+     * @param puzzleFile The file the puzzle was loaded from
+     * @param maxStates The most states to explore when building
+     * @return The oracle, or null if the puzzle has too many states or a distance does not fit
+     */
+    public static DistanceOracle forPuzzle(SearchDomain domain, Path puzzleFile, int maxStates) throws IOException {
+        long checksum = SolutionCache.puzzleId(domain, puzzleFile);
+        String name = puzzleFile.getFileName().toString();
+        Path file = puzzleFile.resolveSibling((name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name) + ".dist");
+        DistanceOracle oracle = load(domain, checksum, file);
+        if(oracle != null || givenUpAt(domain, checksum, file) >= maxStates) return oracle;
+        oracle = explore(domain, checksum, maxStates);
+        try {
+            oracle.save(file);
+        } catch (IOException e) {
+            System.out.println("Unable to save distances to:" + file);
+        }
+        return oracle.count < 0 ? null : oracle;
+    }
+
+    /**
+     * Runs forPuzzle() on a thread of its own, so that a user interface is not blocked while the table is built.
+     *  The tables are built one at a time, in the order they were asked for.
+     * @param domain The puzzle, starting from the configuration in the file; it is used by the other thread, so
+     *               it must not be used by the caller until the result is ready
+     * @param puzzleFile The file the puzzle was loaded from
+     * @param maxStates The most states to explore when building
+     * @return The oracle once it is ready, null if the puzzle has none, or failing with an UncheckedIOException
+     */
+    public static CompletableFuture<DistanceOracle> forPuzzleAsync(SearchDomain domain, Path puzzleFile, int maxStates){
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return forPuzzle(domain, puzzleFile, maxStates);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BUILDER);
+    }
+
+    /**
+     * Private helper that reads the limit a puzzle was given up at
+     * @param domain The puzzle
+     * @param checksum The checksum of the puzzle
+     * @param file The saved table
+     * @return The limit it had too many states for, Integer.MAX_VALUE if its distances do not fit, or -1 if the
+     *  file is not a marker for this puzzle
+     */
+    private static int givenUpAt(SearchDomain domain, long checksum, Path file) throws IOException {
+        if(!Files.isRegularFile(file) || Files.size(file) != HEADER_BYTES) return -1;
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file));
+        if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getLong(8) != checksum
+                || header.getLong(16) != domain.getStart()) return -1;
+        return switch (header.getInt(24)) {
+            case TOO_LARGE -> header.getInt(28);
+            case TOO_DEEP -> Integer.MAX_VALUE;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Private helper that makes the header alone, marking why a puzzle has no table
+     * @param domain The puzzle
+     * @param checksum The checksum of the puzzle
+     * @param reason TOO_LARGE or TOO_DEEP
+     * @param maxStates The limit that was exceeded, 0 for TOO_DEEP
+     * @return The oracle holding the header
+     */
+    private static DistanceOracle marker(SearchDomain domain, long checksum, int reason, int maxStates){
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, checksum).putLong(16, domain.getStart())
+                .putInt(24, reason).putInt(28, maxStates);
+        return new DistanceOracle(domain, header);
+    }
+
+    /**
+     * Computes the checksum of a puzzle file, the CRC32 of its contents
+     * @param puzzleFile The file
+     * @return The checksum
+     */
+    public static long checksum(Path puzzleFile) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(puzzleFile));
+        return crc.getValue();
+    }
+
+    /**
+     * Writes the table to a file, through a temporary file so that a reader never maps half a table
+     * @param file The file
+     */
+    public void save(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer contents = table.duplicate().position(0).limit(table.capacity());
+            while(contents.hasRemaining()) channel.write(contents);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Looks up the distance of an encoded state
+     * @param state The code of the state
+     * @return The amount of moves to the nearest solution, UNSOLVABLE or UNKNOWN
+     */
+    public int distance(long state){
+        int slot = LongStateTable.hash(state) & (capacity - 1);
+        short entry;
+        while((entry = table.getShort(distanceOffset(capacity, slot))) != EMPTY){
+            if(table.getLong(codeOffset(slot)) == state)
+                return entry == NO_PATH ? UNSOLVABLE : (entry & 0xFFFF) - 1;
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Looks up the distance of a Configuration
+     * @param config A Configuration of the puzzle
+     * @return The amount of moves to the nearest solution, UNSOLVABLE or UNKNOWN
+     */
+    public int distance(Configuration config) { return distance(domain.encode(config)); }
+
+    /**
+     * Finds the first move, in the order of the neighbors, that gets one step closer to a solution
+     * @param config A Configuration of the puzzle
+     * @return The Configuration after that move, or null if config is a solution, unsolvable or unknown
+     */
+    public Configuration nextStep(Configuration config){
+        int distance = distance(config);
+        if(distance <= 0) return null;
+        long[] next = {0};
+        boolean[] found = {false};
+        domain.forEachNeighbor(domain.encode(config), neighbor -> {
+            if(!found[0] && distance(neighbor) == distance - 1){
+                next[0] = neighbor;
+                found[0] = true;
+            }
+        });
+        return found[0] ? domain.decode(next[0]) : null;
+    }
+
+    /** Public getter for the amount of states in the table */
+    public int size() { return count; }
+
+    /**
+     * Private helper that runs the backward search from every solution at once. The reversed moves are grouped by
+     *  the state they end at, generated again from the explored states into an array of the exact size.
+     * @param domain The puzzle
+     * @param states Every reachable state
+     * @param firstPredecessor The amount of moves into each state, at its index + 1, turned into the position
+     *                         of its first predecessor
+     * @return The distance of every state, UNSOLVABLE if it can not reach a solution
+     */
+    private static int[] retrograde(SearchDomain domain, LongStateTable states, int[] firstPredecessor){
+        for(int index = 0; index < states.size(); index++) firstPredecessor[index + 1] += firstPredecessor[index];
+        int[] predecessors = new int[firstPredecessor[states.size()]];
+        int[] filled = Arrays.copyOf(firstPredecessor, states.size());
+        for(int index = 0; index < states.size(); index++){
+            int from = index;
+            domain.forEachNeighbor(states.get(index), neighbor -> predecessors[filled[states.indexOf(neighbor)]++] = from);
+        }
+        int[] distances = new int[states.size()];
+        Arrays.fill(distances, UNSOLVABLE);
+        IntRingBuffer queue = new IntRingBuffer(1024);
+        for(int index = 0; index < states.size(); index++){
+            if(domain.isSolution(states.get(index))){
+                distances[index] = 0;
+                queue.add(index);
+            }
+        }
+        while(!queue.isEmpty()){
+            int current = queue.remove();
+            for(int i = firstPredecessor[current]; i < firstPredecessor[current + 1]; i++){
+                int predecessor = predecessors[i];
+                if(distances[predecessor] == UNSOLVABLE){
+                    distances[predecessor] = distances[current] + 1;
+                    queue.add(predecessor);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /** Private helper that returns where the code of a slot is stored */
+    private static int codeOffset(int slot) { return HEADER_BYTES + slot * Long.BYTES; }
+
+    /** Private helper that returns where the distance of a slot is stored */
+    private static int distanceOffset(int capacity, int slot) { return HEADER_BYTES + capacity * Long.BYTES + slot * Short.BYTES; }
+}
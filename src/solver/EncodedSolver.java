@@ -0,0 +1,148 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Solver that runs the BFS over the long codes of a SearchDomain instead of over Configuration objects.
+ *  Visited states live in a StateStore, on the heap or off heap, and since states are added to it in the order
+ *  they are discovered, the store doubles as the queue. Next to its parent each state keeps only the one byte
+ *  label of the move that reached it, and the final path is a ReplayPath that rebuilds its Configurations by
+ *  replaying those moves from the start when they are asked for. Puzzles without a SearchDomain are solved
+ *  with the plain BFS, and the DENSE storage falls back to the HEAP one for a domain whose codes are not dense
+ *  ranks that fit into an int.
+ *  A store that runs out of the memory it was given ends the search with SolveStatus.MEMORY_EXCEEDED.
+ * @author Damon Gonzalez
+ */
+public class EncodedSolver extends Solver {
+    /** Where the visited states are kept */
+    public enum Storage {
+        /** A LongStateTable of primitive arrays on the heap */
+        HEAP,
+        /** An OffHeapStateStore sized from SearchDomain.getStateBytes() */
+        OFF_HEAP,
+        /** A DenseStateStore with one bit per code, for domains with SearchDomain.getStateCount() */
+        DENSE
+    }
+
+    /** The storage used by this solver */
+    private final Storage storage;
+    /** The amount of bytes allocated by the store of the last search */
+    private long bytesUsed = 0;
+    /** The descriptions of the moves of the path found by the last search */
+    private List<String> moves = new ArrayList<>();
+
+    /**
+     * Public constructor for an EncodedSolver that keeps its states in a given storage
+     * @param storage Where the visited states are kept
+     */
+    public EncodedSolver(Storage storage){
+        this.storage = storage;
+    }
+
+    /** Public constructor for an EncodedSolver that keeps its states on the heap */
+    public EncodedSolver(){
+        this(Storage.HEAP);
+    }
+
+    /**
+     * Encoded version of the BFS algorithm, uses the SearchDomain of the start if it has one.
+     * @param startConfig The initial Configuration
+     * @return The path that is calculated, empty if there is no path
+     */
+    @Override
+    public List<Configuration> BFS(Configuration startConfig){
+        SearchDomain domain = startConfig.getSearchDomain();
+        if(domain == null) return super.BFS(startConfig);
+        return BFS(domain);
+    }
+
+    /**
+     * Runs the BFS algorithm over a SearchDomain, from its start state
+     * @param domain The puzzle being solved
+     * @return The path that is calculated, empty if there is no path
+     */
+    public List<Configuration> BFS(SearchDomain domain){
+        long stateCount = domain.getStateCount();
+        boolean dense = storage == Storage.DENSE && stateCount > 0 && stateCount <= DenseStateStore.MAX_STATES;
+        try(StateStore visited = dense ? new DenseStateStore(stateCount, 1024)
+                : storage == Storage.OFF_HEAP ? new OffHeapStateStore(domain.getStateBytes())
+                : new LongStateTable(1024)){
+            return search(domain, visited);
+        }
+    }
+
+    /**
+     * Private helper that runs the BFS algorithm with a given store
+     * @param domain The puzzle being solved
+     * @param visited The empty store the visited states are added to
+     * @return The path that is calculated, empty if there is no path
+     */
+    private List<Configuration> search(SearchDomain domain, StateStore visited){
+        startSearch();
+        visited.add(domain.getStart(), StateTable.NO_PARENT, 0);
+        Expander expander = new Expander(visited);
+        int solution = -1;
+        for(int head = 0; head < visited.size() && !visited.isFull() && !isStopped(); head++){
+            long state = visited.get(head);
+            if(domain.isSolution(state)){
+                solution = head;
+                break;
+            }
+            expandedConfigs++;
+            expander.parent = head;
+            domain.forEachMove(state, expander);
+        }
+        if(solution == -1 && status == null && visited.isFull()) status = SolveStatus.MEMORY_EXCEEDED;
+        totalConfigs = 1 + expander.generated;
+        uniqueConfigs = visited.size();
+        bytesUsed = visited.getBytesUsed();
+        moves = new ArrayList<>();
+        endSearch(solution != -1);
+        if(solution == -1) return new ArrayList<>();
+        int length = 0;
+        for(int current = solution; current != 0; current = visited.getParent(current)) length++;
+        byte[] labels = new byte[length];
+        for(int current = solution; current != 0; current = visited.getParent(current))
+            labels[--length] = (byte) visited.getMove(current);
+        ReplayPath path = new ReplayPath(domain.decode(domain.getStart()), labels);
+        moves = path.describeMoves(domain);
+        return path;
+    }
+
+    /** Public getter for the descriptions of the moves of the path found by the last search, empty if none was found */
+    public List<String> getMoves() { return moves; }
+
+    /** Public getter for the amount of bytes the store of the last search allocated, returns 0 if BFS() was not called */
+    public long getBytesUsed() { return bytesUsed; }
+
+    /** Public getter for the bytes allocated per unique configuration by the last search, returns 0 if BFS() was not called */
+    public double getBytesPerState() { return uniqueConfigs == 0 ? 0 : (double) bytesUsed / uniqueConfigs; }
+
+    /**
+     * The callback given to the SearchDomain. One instance is reused for every expansion so that generating
+     *  a neighbor allocates nothing.
+     */
+    private static class Expander implements SearchDomain.MoveConsumer {
+        /** The store the neighbors are added to */
+        private final StateStore visited;
+        /** The index of the state being expanded */
+        private int parent;
+        /** The amount of neighbors generated so far */
+        private int generated = 0;
+
+        /**
+         * Constructor for the callback of one search
+         * @param visited The store of the search
+         */
+        private Expander(StateStore visited){
+            this.visited = visited;
+        }
+
+        @Override
+        public void accept(long neighbor, int move){
+            generated++;
+            visited.add(neighbor, parent, move);
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * A Solver for state spaces that do not fit into memory. It runs the BFS over a SearchDomain one level at a time
+ *  and keeps every level on disk as a file of sorted, unique state codes. The neighbors of a level are collected
+ *  in a buffer bounded by the memory cap, which is sorted and written as a run file whenever it fills up. The runs
+ *  are then merged, and the merge drops every state that is also in an earlier level, so duplicates are removed
+ *  by reading files sequentially instead of by probing a table. Parents are not stored; the path is rebuilt by a
+ *  backward pass that looks for a neighbor of each step in the level before it. Puzzles without a SearchDomain
+ *  are solved with the plain BFS. The neighbor buffer starts small and doubles up to the cap only while a level
+ *  needs it, so a small puzzle takes little memory, and the buffers of the files are reused within a search.
+ * @author Damon Gonzalez
+ */
+public class ExternalSolver extends Solver {
+    /** The size of the buffer used to write a file */
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    /** The size of the buffer used to read a file, smaller since many files are read at once during a merge */
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    /** The directory the level and run files are created in */
+    private final Path scratchDirectory;
+    /** The most states the neighbor buffer holds before it is written as a run */
+    private final int bufferStates;
+
+    /**
+     * Public constructor for an ExternalSolver
+     * @param scratchDirectory The directory the files of a search are created in, they are deleted afterwards
+     * @param memoryBytes The amount of memory the neighbor buffer may use
+     */
+    public ExternalSolver(Path scratchDirectory, long memoryBytes){
+        this.scratchDirectory = scratchDirectory;
+        this.bufferStates = (int) Math.max(1024, Math.min(Integer.MAX_VALUE - 8, memoryBytes / Long.BYTES));
+    }
+
+    /**
+     * External memory version of the BFS algorithm, uses the SearchDomain of the start if it has one.
+     * @param startConfig The initial Configuration
+     * @return The path that is calculated, empty if there is no path
+     */
+    @Override
+    public List<Configuration> BFS(Configuration startConfig){
+        SearchDomain domain = startConfig.getSearchDomain();
+        if(domain == null) return super.BFS(startConfig);
+        return BFS(domain);
+    }
+
+    /**
+     * Runs the external memory BFS algorithm over a SearchDomain, from its start state
+     * @param domain The puzzle being solved
+     * @return The path that is calculated, empty if there is no path
+     */
+    public List<Configuration> BFS(SearchDomain domain){
+        Path directory;
+        try {
+            Files.createDirectories(scratchDirectory);
+            directory = Files.createTempDirectory(scratchDirectory, "bfs");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Throwable failure = null;
+        try {
+            return search(domain, directory);
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            try {
+                deleteAll(directory);
+            } catch (IOException e) {
+                if(failure == null) throw new UncheckedIOException(e);
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Private helper that runs the search with its files in a given directory
+     * @param domain The puzzle being solved
+     * @param directory The empty directory for the files of this search
+     * @return The path that is calculated, empty if there is no path
+     */
+    private List<Configuration> search(SearchDomain domain, Path directory) throws IOException {
+        startSearch();
+        Scratch scratch = new Scratch(bufferStates);
+        List<Path> levels = new ArrayList<>();
+        Path first = directory.resolve("level-0.bin");
+        try(RunWriter writer = new RunWriter(first, scratch)){
+            writer.write(domain.getStart());
+        }
+        levels.add(first);
+        totalConfigs = 1;
+        uniqueConfigs = 1;
+        long solution = domain.getStart();
+        boolean solved = domain.isSolution(solution);
+        long levelSize = 1;
+        while(!solved && !isStopped()){
+            expandedConfigs += (int) levelSize;
+            List<Path> runs = writeRuns(domain, levels.get(levels.size() - 1), directory, scratch);
+            Path next = directory.resolve("level-" + levels.size() + ".bin");
+            SolutionWatch watch = new SolutionWatch(domain);
+            levelSize = merge(runs, levels, next, watch, scratch);
+            for(Path run : runs) Files.delete(run);
+            if(levelSize == 0) break;
+            levels.add(next);
+            uniqueConfigs += (int) levelSize;
+            solved = watch.found;
+            solution = watch.solution;
+        }
+        endSearch(solved);
+        if(!solved) return new ArrayList<>();
+        return rebuildPath(domain, levels, solution, scratch);
+    }
+
+    /**
+     * Private helper that generates the neighbors of every state of a level and writes them as sorted, unique runs
+     * @param domain The puzzle being solved
+     * @param level The file of the level being expanded
+     * @param directory The directory of this search
+     * @param scratch The buffers of this search, the neighbors are collected in its states
+     * @return The run files
+     */
+    private List<Path> writeRuns(SearchDomain domain, Path level, Path directory, Scratch scratch) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        int[] filled = {0};
+        LongConsumer collector = neighbor -> {
+            if(filled[0] == scratch.states.length && !scratch.grow()){
+                runs.add(writeRun(scratch.states, filled[0], directory, runs.size(), scratch));
+                filled[0] = 0;
+            }
+            scratch.states[filled[0]++] = neighbor;
+            totalConfigs++;
+        };
+        try(RunReader reader = new RunReader(level, scratch)){
+            while(reader.hasNext()) domain.forEachNeighbor(reader.next(), collector);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if(filled[0] > 0) runs.add(writeRun(scratch.states, filled[0], directory, runs.size(), scratch));
+        return runs;
+    }
+
+    /**
+     * Private helper that sorts the start of the buffer and writes it without duplicates
+     * @param buffer The buffer holding the states
+     * @param length The amount of states in the buffer
+     * @param directory The directory of this search
+     * @param number The number of this run in the level
+     * @param scratch The buffers of this search
+     * @return The run file
+     */
+    private static Path writeRun(long[] buffer, int length, Path directory, int number, Scratch scratch){
+        Arrays.sort(buffer, 0, length);
+        Path run = directory.resolve("run-" + number + ".bin");
+        try(RunWriter writer = new RunWriter(run, scratch)){
+            for(int i = 0; i < length; i++)
+                if(i == 0 || buffer[i] != buffer[i - 1]) writer.write(buffer[i]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return run;
+    }
+
+    /**
+     * Private helper that merges the runs of a level into the next level file, leaving out states that are in
+     *  any earlier level. All files are sorted, so this is a single sequential pass over each of them.
+     * @param runs The run files
+     * @param levels The files of the earlier levels
+     * @param next The file the new level is written to
+     * @param action Called with every state written to the new level
+     * @param scratch The buffers of this search
+     * @return The amount of states written to the new level
+     */
+    private static long merge(List<Path> runs, List<Path> levels, Path next, LongConsumer action, Scratch scratch)
+            throws IOException {
+        List<RunReader> readers = new ArrayList<>();
+        List<RunReader> earlier = new ArrayList<>();
+        long written = 0;
+        try(RunWriter writer = new RunWriter(next, scratch)){
+            PriorityQueue<RunReader> heads = new PriorityQueue<>(Comparator.comparingLong(RunReader::peek));
+            for(Path run : runs){
+                RunReader reader = new RunReader(run, scratch);
+                readers.add(reader);
+                if(reader.hasNext()) heads.add(reader);
+            }
+            for(Path level : levels) earlier.add(new RunReader(level, scratch));
+            boolean any = false;
+            long last = 0;
+            while(!heads.isEmpty()){
+                RunReader reader = heads.poll();
+                long state = reader.next();
+                if(reader.hasNext()) heads.add(reader);
+                if(any && state == last) continue;
+                any = true;
+                last = state;
+                if(!inAny(earlier, state)){
+                    writer.write(state);
+                    action.accept(state);
+                    written++;
+                }
+            }
+        } finally {
+            for(RunReader reader : readers) reader.close();
+            for(RunReader reader : earlier) reader.close();
+        }
+        return written;
+    }
+
+    /**
+     * Private helper that advances sorted readers up to a state and checks if any of them holds it
+     * @param readers Readers of sorted files, none of them is behind a state smaller than the one given
+     * @param state The state being looked for, never smaller than the previous call
+     * @return True if one of the files holds the state
+     */
+    private static boolean inAny(List<RunReader> readers, long state) throws IOException {
+        boolean found = false;
+        for(RunReader reader : readers){
+            while(reader.hasNext() && reader.peek() < state) reader.next();
+            if(reader.hasNext() && reader.peek() == state) found = true;
+        }
+        return found;
+    }
+
+    /**
+     * Private helper that rebuilds the path backwards, for each level it finds a state whose neighbors include
+     *  the state chosen in the level after it
+     * @param domain The puzzle being solved
+     * @param levels The files of the levels, the last one holds the solution
+     * @param solution The solution that was found
+     * @param scratch The buffers of this search
+     * @return The path from the start to the solution
+     */
+    private static List<Configuration> rebuildPath(SearchDomain domain, List<Path> levels, long solution,
+                                                   Scratch scratch) throws IOException {
+        List<Configuration> path = new ArrayList<>();
+        path.add(domain.decode(solution));
+        long target = solution;
+        for(int depth = levels.size() - 2; depth >= 0; depth--){
+            long child = target;
+            boolean[] isParent = {false};
+            try(RunReader reader = new RunReader(levels.get(depth), scratch)){
+                while(reader.hasNext()){
+                    long state = reader.next();
+                    isParent[0] = false;
+                    domain.forEachNeighbor(state, neighbor -> isParent[0] |= neighbor == child);
+                    if(isParent[0]){
+                        target = state;
+                        break;
+                    }
+                }
+            }
+            path.add(domain.decode(target));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Private helper that deletes the files of a search and its directory
+     * @param directory The directory of the search
+     */
+    private static void deleteAll(Path directory) throws IOException {
+        try(Stream<Path> files = Files.list(directory)){
+            for(Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * The memory of one search: the neighbor buffer, which starts small and doubles up to its cap, and the
+     *  direct buffers of the files, which a closed writer or reader gives back to be used by the next one
+     */
+    private static class Scratch {
+        /** The most states the neighbor buffer may hold */
+        private final int maxStates;
+        /** The neighbor buffer */
+        private long[] states;
+        /** The write buffers that are not in use */
+        private final ArrayDeque<ByteBuffer> writeBuffers = new ArrayDeque<>();
+        /** The read buffers that are not in use */
+        private final ArrayDeque<ByteBuffer> readBuffers = new ArrayDeque<>();
+
+        /**
+         * Constructor for the memory of one search
+         * @param maxStates The most states the neighbor buffer may hold
+         */
+        private Scratch(int maxStates){
+            this.maxStates = maxStates;
+            this.states = new long[Math.min(maxStates, 1024)];
+        }
+
+        /**
+         * Doubles the neighbor buffer, keeping its states
+         * @return False if it is already at its cap
+         */
+        private boolean grow(){
+            if(states.length == maxStates) return false;
+            states = Arrays.copyOf(states, (int) Math.min(maxStates, (long) states.length << 1));
+            return true;
+        }
+
+        /**
+         * Takes a free buffer, or allocates one if none is free
+         * @param free The free buffers of its size
+         * @param bytes Its size
+         * @return A cleared buffer
+         */
+        private static ByteBuffer take(ArrayDeque<ByteBuffer> free, int bytes){
+            ByteBuffer buffer = free.poll();
+            return buffer == null ? ByteBuffer.allocateDirect(bytes) : buffer.clear();
+        }
+    }
+
+    /** Remembers the first solution among the states of a new level */
+    private static class SolutionWatch implements LongConsumer {
+        /** The puzzle being solved */
+        private final SearchDomain domain;
+        /** True once a solution has been seen */
+        private boolean found = false;
+        /** The first solution seen */
+        private long solution;
+
+        /**
+         * Constructor for the watch of one level
+         * @param domain The puzzle being solved
+         */
+        private SolutionWatch(SearchDomain domain){
+            this.domain = domain;
+        }
+
+        @Override
+        public void accept(long state){
+            if(!found && domain.isSolution(state)){
+                found = true;
+                solution = state;
+            }
+        }
+    }
+
+    /** Writes longs sequentially to a new file through a large buffer */
+    private static class RunWriter implements AutoCloseable {
+        /** The channel of the file */
+        private final FileChannel channel;
+        /** The buffer that is written to the channel whenever it is full */
+        private final ByteBuffer buffer;
+        /** The buffers of the search, the buffer is given back to them on close */
+        private final Scratch scratch;
+
+        /**
+         * Creates the file, replacing it if it exists
+         * @param file The file
+         * @param scratch The buffers of the search
+         */
+        private RunWriter(Path file, Scratch scratch) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.scratch = scratch;
+            this.buffer = Scratch.take(scratch.writeBuffers, WRITE_BUFFER_BYTES);
+        }
+
+        /** Appends a long to the file */
+        private void write(long value) throws IOException {
+            if(!buffer.hasRemaining()) flush();
+            buffer.putLong(value);
+        }
+
+        /** Private helper that writes the buffer to the channel */
+        private void flush() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+                scratch.writeBuffers.push(buffer);
+            }
+        }
+    }
+
+    /** Reads longs sequentially from a file, with one long of look ahead */
+    private static class RunReader implements AutoCloseable {
+        /** The channel of the file */
+        private final FileChannel channel;
+        /** The buffer that is refilled from the channel whenever it is empty */
+        private final ByteBuffer buffer;
+        /** The buffers of the search, the buffer is given back to them on close */
+        private final Scratch scratch;
+        /** True if the next long has been read into head */
+        private boolean hasHead;
+        /** The next long */
+        private long head;
+
+        /**
+         * Opens a file for reading
+         * @param file The file
+         * @param scratch The buffers of the search
+         */
+        private RunReader(Path file, Scratch scratch) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.scratch = scratch;
+            this.buffer = Scratch.take(scratch.readBuffers, READ_BUFFER_BYTES);
+            buffer.limit(0);
+            advance();
+        }
+
+        /** Returns true if there is another long in the file */
+        private boolean hasNext() { return hasHead; }
+
+        /** Returns the next long without consuming it */
+        private long peek() { return head; }
+
+        /** Returns the next long and moves past it */
+        private long next() {
+            long value = head;
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return value;
+        }
+
+        /** Private helper that reads the next long into head */
+        private void advance() throws IOException {
+            if(buffer.remaining() < Long.BYTES){
+                buffer.compact();
+                while(buffer.hasRemaining() && channel.read(buffer) > 0);
+                buffer.flip();
+            }
+            hasHead = buffer.remaining() >= Long.BYTES;
+            if(hasHead) head = buffer.getLong();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            scratch.readBuffers.push(buffer);
+        }
+    }
+}
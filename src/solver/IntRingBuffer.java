@@ -0,0 +1,78 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A first-in first-out queue of primitive ints backed by a circular array. It is used as the
+ *  frontier of the solver so that enqueuing and dequeuing a state never allocates a node or boxes an index
+ * @author Damon Gonzalez
+ */
+public class IntRingBuffer {
+    /** The backing array, its length is always a power of two */
+    private int[] elements;
+    /** The position of the next element to be removed */
+    private int head = 0;
+    /** The amount of elements currently held */
+    private int size = 0;
+
+    /**
+     * Public constructor for an IntRingBuffer with a given starting capacity, the buffer
+     *  doubles in size when it is full
+     * @param initialCapacity The amount of elements the buffer can hold before it has to grow
+     */
+    public IntRingBuffer(int initialCapacity){
+        int capacity = 16;
+        while(capacity < initialCapacity) capacity <<= 1;
+        elements = new int[capacity];
+    }
+
+    /**
+     * Adds a value to the tail of the queue
+     * @param value The value being added
+     */
+    public void add(int value){
+        if(size == elements.length) grow();
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * Removes and returns the value at the head of the queue
+     * @return The oldest value in the queue
+     */
+    public int remove(){
+        if(size == 0) throw new NoSuchElementException();
+        int value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    /** Public getter for the amount of elements in the queue */
+    public int size() { return size; }
+
+    /** Returns true if there are no elements in the queue */
+    public boolean isEmpty() { return size == 0; }
+
+    /** Removes every element from the queue, the backing array is kept for reuse */
+    public void clear(){
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Private helper that doubles the backing array, unrolling the elements so that the
+     *  head is at index 0 again
+     */
+    private void grow(){
+        int[] bigger = Arrays.copyOf(elements, elements.length << 1);
+        if(head != 0){
+            int firstPart = elements.length - head;
+            System.arraycopy(elements, head, bigger, 0, firstPart);
+            System.arraycopy(elements, 0, bigger, firstPart, head);
+        }
+        elements = bigger;
+        head = 0;
+    }
+}
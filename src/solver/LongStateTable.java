@@ -0,0 +1,146 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * The heap StateStore of the EncodedSolver, the primitive counterpart of StateTable. States are longs, each
+ *  one remembers the index of the state it was reached from, and the lookup uses open addressing over an
+ *  int array of indices, so adding a state never creates an object.
+ * @author Damon Gonzalez
+ */
+public class LongStateTable implements StateStore {
+    /** The maximum fraction of slots that may be in use before the slots are rehashed */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /** The states in the order they were added */
+    private long[] states;
+    /** The index of the parent of each state */
+    private int[] parents;
+    /** The label of the move that reached each state */
+    private byte[] moves;
+    /** The open addressing slots, each holds a state index plus one, 0 means the slot is empty */
+    private int[] slots;
+    /** The amount of states in this table */
+    private int size = 0;
+
+    /**
+     * Public constructor for a LongStateTable sized for an expected amount of states, the table grows
+     *  when more are added
+     * @param expectedStates The amount of states expected
+     */
+    public LongStateTable(int expectedStates){
+        int capacity = 16;
+        while(capacity * LOAD_FACTOR < expectedStates) capacity <<= 1;
+        slots = new int[capacity];
+        states = new long[Math.max(16, expectedStates)];
+        parents = new int[states.length];
+        moves = new byte[states.length];
+    }
+
+    /**
+     * Adds a state to the table if it is not already in it
+     * @param state The state being added
+     * @param parent The index of the state it was generated from, or StateTable.NO_PARENT
+     * @param move The label of the move from the parent, from 0 to 255
+     * @return The index of the new state, or -1 if it was already in the table
+     */
+    @Override
+    public int add(long state, int parent, int move){
+        int mask = slots.length - 1;
+        int slot = hash(state) & mask;
+        while(slots[slot] != 0){
+            if(states[slots[slot] - 1] == state) return -1;
+            slot = (slot + 1) & mask;
+        }
+        if(size == states.length){
+            states = Arrays.copyOf(states, size << 1);
+            parents = Arrays.copyOf(parents, size << 1);
+            moves = Arrays.copyOf(moves, size << 1);
+        }
+        states[size] = state;
+        parents[size] = parent;
+        moves[size] = (byte) move;
+        slots[slot] = size + 1;
+        size++;
+        if(size > slots.length * LOAD_FACTOR) rehash();
+        return size - 1;
+    }
+
+    /**
+     * Finds the index of a state
+     * @param state The state being searched for
+     * @return The index of the state, or -1 if it is not in the table
+     */
+    public int indexOf(long state){
+        int mask = slots.length - 1;
+        int slot = hash(state) & mask;
+        while(slots[slot] != 0){
+            if(states[slots[slot] - 1] == state) return slots[slot] - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Public getter for a state in the table
+     * @param index The index of the state
+     * @return The state at that index
+     */
+    @Override
+    public long get(int index) { return states[index]; }
+
+    /**
+     * Public getter for the parent of a state in the table
+     * @param index The index of the state
+     * @return The index of its parent, or StateTable.NO_PARENT if it is the start
+     */
+    @Override
+    public int getParent(int index) { return parents[index]; }
+
+    /**
+     * Public getter for the move that reached a state in the table
+     * @param index The index of the state
+     * @return The label of the move, from 0 to 255
+     */
+    @Override
+    public int getMove(int index) { return moves[index] & 0xFF; }
+
+    /** Public getter for the amount of states in the table */
+    @Override
+    public int size() { return size; }
+
+    /**
+     * Public getter for the memory held by the arrays of this table
+     * @return The amount of bytes in the states, parents, moves and slots arrays
+     */
+    @Override
+    public long getBytesUsed(){
+        return (long) states.length * (Long.BYTES + Integer.BYTES + 1) + (long) slots.length * Integer.BYTES;
+    }
+
+    /**
+     * Package private helper that scrambles all 64 bits of a state into an int, encoded states tend to differ only in
+     *  a few low bits. This is the finalizer of MurmurHash3.
+     * @param state The state
+     * @return The hash of the state
+     */
+    static int hash(long state){
+        state ^= state >>> 33;
+        state *= 0xff51afd7ed558ccdL;
+        state ^= state >>> 33;
+        state *= 0xc4ceb9fe1a85ec53L;
+        state ^= state >>> 33;
+        return (int) state;
+    }
+
+    /** Private helper that doubles the slots and places every state into them again */
+    private void rehash(){
+        slots = new int[slots.length << 1];
+        int mask = slots.length - 1;
+        for(int index = 0; index < size; index++){
+            int slot = hash(states[index]) & mask;
+            while(slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = index + 1;
+        }
+    }
+}
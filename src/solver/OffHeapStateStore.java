@@ -0,0 +1,268 @@
+package solver;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A StateStore that keeps every state, parent and slot outside of the Java heap, in direct ByteBuffers that are
+ *  allocated in fixed size arenas as the store grows. Each state takes the bytes the SearchDomain needs to encode
+ *  it, rounded up to 1, 2, 4 or 8, plus 4 bytes for its parent and 1 for its move, and the garbage collector
+ *  never has to look at any of it. Direct buffers are still bounded by the -XX:MaxDirectMemorySize option of the
+ *  JVM, which is the heap size -Xmx unless it is set, so the store is given a limit of its own, at most that
+ *  option, and once the next arena would not fit it refuses new states and isFull() turns true instead of
+ *  failing with an OutOfMemoryError. The slots replaced by a rehash and every arena of a closed store are freed
+ *  right away, not when the garbage collector gets to their buffers, so repeated searches do not pile up memory.
+ * @author Damon Gonzalez
+ */
+public class OffHeapStateStore implements StateStore {
+    /** The largest size of an arena in bytes, a store with a small limit uses arenas of a quarter of it */
+    private static final int ARENA_BYTES = 1 << 26;
+    /** The maximum fraction of slots that may be in use before the slots are rehashed */
+    private static final float LOAD_FACTOR = 0.5f;
+    /** The sun.misc.Unsafe instance that frees direct buffers, or null if the JVM does not give it out */
+    private static final Object UNSAFE;
+    /** Its invokeCleaner(ByteBuffer) method, or null */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /** The amount of bytes used to store a state, a power of two so that it can be read in one access */
+    private final int stateBytes;
+    /** The amount of bytes of one record, a state followed by its parent and its move */
+    private final int recordBytes;
+    /** The amount of records in one arena, a power of two so that finding a record needs no division */
+    private final int recordsPerArena;
+    /** The base two logarithm of recordsPerArena */
+    private final int arenaShift;
+    /** The arenas holding the records, in the order the states were added */
+    private ByteBuffer[] records = new ByteBuffer[0];
+    /** The arenas holding the open addressing slots, each slot holds a state index plus one, 0 means empty */
+    private ByteBuffer[] slots;
+    /** The amount of slots */
+    private long slotCount;
+    /** The amount of states in this store */
+    private int size = 0;
+    /** The most bytes the arenas of this store may take */
+    private final long maxBytes;
+    /** True once an arena did not fit into maxBytes, new states are refused from then on */
+    private boolean full = false;
+
+    /**
+     * Public constructor for an OffHeapStateStore limited by -Dsolver.memory megabytes, or by
+     *  -XX:MaxDirectMemorySize if that is not set
+     * @param stateBytes The amount of bytes needed to encode a state, from 1 to 8
+     */
+    public OffHeapStateStore(int stateBytes){
+        this(stateBytes, Math.min(maxDirectMemory(), Long.getLong("solver.memory", Long.MAX_VALUE >> 20) << 20));
+    }
+
+    /**
+     * Public constructor for an OffHeapStateStore
+     * @param stateBytes The amount of bytes needed to encode a state, from 1 to 8
+     * @param maxBytes The most bytes the arenas of the store may take
+     */
+    public OffHeapStateStore(int stateBytes, long maxBytes){
+        if(stateBytes < 1 || stateBytes > Long.BYTES)
+            throw new IllegalArgumentException("stateBytes must be from 1 to 8: " + stateBytes);
+        this.maxBytes = maxBytes;
+        int width = Integer.highestOneBit(stateBytes);
+        this.stateBytes = width == stateBytes ? width : width << 1;
+        this.recordBytes = this.stateBytes + Integer.BYTES + 1;
+        int arenaBytes = (int) Math.min(ARENA_BYTES, Math.max(recordBytes, maxBytes / 4));
+        this.recordsPerArena = Integer.highestOneBit(arenaBytes / recordBytes);
+        this.arenaShift = Integer.numberOfTrailingZeros(recordsPerArena);
+        this.slotCount = 1024;
+        this.slots = allocateSlots(slotCount);
+    }
+
+    @Override
+    public int add(long state, int parent, int move){
+        long mask = slotCount - 1;
+        long slot = LongStateTable.hash(state) & mask;
+        int entry;
+        while((entry = getSlot(slot)) != 0){
+            if(get(entry - 1) == state) return -1;
+            slot = (slot + 1) & mask;
+        }
+        if(full) return -1;
+        if(size == Integer.MAX_VALUE - 1) throw new IllegalStateException("OffHeapStateStore is full");
+        int arena = size >>> arenaShift;
+        if(arena == records.length){
+            if(getBytesUsed() + (long) recordsPerArena * recordBytes > maxBytes){
+                full = true;
+                return -1;
+            }
+            records = Arrays.copyOf(records, arena + 1);
+            records[arena] = allocate(recordsPerArena * recordBytes);
+        }
+        int offset = (size & (recordsPerArena - 1)) * recordBytes;
+        ByteBuffer buffer = records[arena];
+        switch (stateBytes) {
+            case 1 -> buffer.put(offset, (byte) state);
+            case 2 -> buffer.putShort(offset, (short) state);
+            case 4 -> buffer.putInt(offset, (int) state);
+            default -> buffer.putLong(offset, state);
+        }
+        buffer.putInt(offset + stateBytes, parent);
+        buffer.put(offset + stateBytes + Integer.BYTES, (byte) move);
+        setSlot(slot, size + 1);
+        size++;
+        if(size > slotCount * LOAD_FACTOR) rehash();
+        return size - 1;
+    }
+
+    @Override
+    public long get(int index){
+        ByteBuffer buffer = records[index >>> arenaShift];
+        int offset = (index & (recordsPerArena - 1)) * recordBytes;
+        return switch (stateBytes) {
+            case 1 -> buffer.get(offset) & 0xFFL;
+            case 2 -> buffer.getShort(offset) & 0xFFFFL;
+            case 4 -> buffer.getInt(offset) & 0xFFFFFFFFL;
+            default -> buffer.getLong(offset);
+        };
+    }
+
+    @Override
+    public int getParent(int index){
+        return records[index >>> arenaShift].getInt((index & (recordsPerArena - 1)) * recordBytes + stateBytes);
+    }
+
+    @Override
+    public int getMove(int index){
+        int offset = (index & (recordsPerArena - 1)) * recordBytes + stateBytes + Integer.BYTES;
+        return records[index >>> arenaShift].get(offset) & 0xFF;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    /**
+     * Tells if a state was refused because the next arena would not fit into the limit of the store. A search
+     *  that goes on after that could miss states, so it has to stop.
+     * @return True if the store is full
+     */
+    @Override
+    public boolean isFull() { return full; }
+
+    @Override
+    public long getBytesUsed(){
+        return (long) records.length * recordsPerArena * recordBytes + slotCount * Integer.BYTES;
+    }
+
+    /** Frees every arena */
+    @Override
+    public void close(){
+        free(records);
+        free(slots);
+        records = new ByteBuffer[0];
+        slots = new ByteBuffer[0];
+        slotCount = 0;
+        size = 0;
+    }
+
+    /** Private helper that reads a slot */
+    private int getSlot(long slot){
+        long offset = slot * Integer.BYTES;
+        return slots[(int) (offset / ARENA_BYTES)].getInt((int) (offset & (ARENA_BYTES - 1)));
+    }
+
+    /** Private helper that writes a slot */
+    private void setSlot(long slot, int entry){
+        long offset = slot * Integer.BYTES;
+        slots[(int) (offset / ARENA_BYTES)].putInt((int) (offset & (ARENA_BYTES - 1)), entry);
+    }
+
+    /**
+     * Private helper that doubles the slots and places every state into them again, then frees the old slots.
+     *  If the doubled slots would not fit into the limit the store is full instead, and keeps its slots.
+     */
+    private void rehash(){
+        if(getBytesUsed() + 2 * slotCount * Integer.BYTES > maxBytes){
+            full = true;
+            return;
+        }
+        ByteBuffer[] old = slots;
+        slotCount <<= 1;
+        slots = allocateSlots(slotCount);
+        free(old);
+        long mask = slotCount - 1;
+        for(int index = 0; index < size; index++){
+            long slot = LongStateTable.hash(get(index)) & mask;
+            while(getSlot(slot) != 0) slot = (slot + 1) & mask;
+            setSlot(slot, index + 1);
+        }
+    }
+
+    /**
+     * Private helper that allocates zeroed arenas for a given amount of slots
+     * @param count The amount of slots, a power of two
+     * @return The arenas
+     */
+    private static ByteBuffer[] allocateSlots(long count){
+        long bytes = count * Integer.BYTES;
+        ByteBuffer[] arenas = new ByteBuffer[(int) ((bytes + ARENA_BYTES - 1) / ARENA_BYTES)];
+        for(int i = 0; i < arenas.length; i++)
+            arenas[i] = allocate((int) Math.min(ARENA_BYTES, bytes - (long) i * ARENA_BYTES));
+        return arenas;
+    }
+
+    /** Private helper that allocates one direct buffer in native byte order, its contents are zero */
+    private static ByteBuffer allocate(int bytes){
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Private helper that frees the memory of direct buffers now. If the JVM does not allow it the memory is
+     *  freed once the buffers are collected, as usual.
+     * @param arenas The buffers, none of them may be used afterwards
+     */
+    private static void free(ByteBuffer[] arenas){
+        if(INVOKE_CLEANER == null) return;
+        try {
+            for(ByteBuffer arena : arenas) INVOKE_CLEANER.invoke(UNSAFE, arena);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Unable to free off heap memory");
+        }
+    }
+
+    /**
+     * Reads the -XX:MaxDirectMemorySize option of the JVM
+     * @return The most bytes all direct buffers may take together, the heap size if the option is not set
+     */
+    static long maxDirectMemory(){
+        for(String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()){
+            if(!argument.startsWith("-XX:MaxDirectMemorySize=")) continue;
+            String size = argument.substring(argument.indexOf('=') + 1).toLowerCase();
+            int shift = switch (size.charAt(size.length() - 1)) {
+                case 'k' -> 10;
+                case 'm' -> 20;
+                case 'g' -> 30;
+                case 't' -> 40;
+                default -> 0;
+            };
+            long bytes = Long.parseLong(shift == 0 ? size : size.substring(0, size.length() - 1)) << shift;
+            if(bytes > 0) return bytes;
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+}
@@ -0,0 +1,223 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * A Solver that expands every depth level of the breadth first search in parallel on a ForkJoinPool.
+ *  Each level is cut into chunks, and every chunk collects the neighbors of its states into its own buffer.
+ *  A neighbor generated by several states is claimed by the one that comes first in the level, so the
+ *  resulting tree, and therefore the path, is exactly the one the sequential BFS would build no matter
+ *  how the threads are scheduled.
+ * @author Damon Gonzalez
+ */
+public class ParallelSolver extends Solver {
+    /** Levels are only split into chunks of at least this many states */
+    private static final int MIN_CHUNK = 64;
+    /** The amount of worker threads used to expand a level */
+    private final int threads;
+
+    /**
+     * Public constructor for a ParallelSolver that uses a given amount of threads
+     * @param threads The amount of worker threads, must be at least 1
+     */
+    public ParallelSolver(int threads){
+        if(threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.threads = threads;
+    }
+
+    /** Public constructor for a ParallelSolver that uses one thread per available processor */
+    public ParallelSolver(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Level synchronous version of the BFS algorithm. Since the states of a level are added to the visited
+     * table one after another, each level is a range of indices in the table and no separate queue is needed.
+     * The limits of the SolveOptions are checked before each level.
+     * @param startConfig The initial Configuration
+     * @return The path that is calculated, empty if there is no path
+     */
+    @Override
+    public List<Configuration> BFS(Configuration startConfig){
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return search(startConfig, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Private helper that runs the search on a given pool
+     * @param startConfig The initial Configuration
+     * @param pool The pool used to expand the levels
+     * @return The path that is calculated, empty if there is no path
+     */
+    private List<Configuration> search(Configuration startConfig, ForkJoinPool pool){
+        startSearch();
+        StateTable visited = new StateTable(1024);
+        visited.add(startConfig, StateTable.NO_PARENT);
+        totalConfigs = 1;
+        int levelStart = 0;
+        int levelEnd = 1;
+        int solution = -1;
+        while(levelStart < levelEnd){
+            solution = firstSolution(visited, levelStart, levelEnd, pool);
+            if(solution != -1 || isStopped()) break;
+            expandedConfigs += levelEnd - levelStart;
+            int chunks = Math.max(1, Math.min(threads * 4, (levelEnd - levelStart) / MIN_CHUNK));
+            Batch[] batches = new Batch[chunks];
+            ConcurrentHashMap<Configuration, Long> claims = new ConcurrentHashMap<>();
+            pool.invoke(new ExpandTask(visited, claims, batches, levelStart, levelEnd, 0, chunks));
+            for(Batch batch : batches){
+                totalConfigs += batch.generated;
+                for(int i = 0; i < batch.size; i++){
+                    Configuration neighbor = batch.neighbors.get(i);
+                    if(claims.get(neighbor) == batch.keys[i])
+                        visited.add(neighbor, batch.parents[i]);
+                }
+            }
+            levelStart = levelEnd;
+            levelEnd = visited.size();
+        }
+        uniqueConfigs = visited.size();
+        endSearch(solution != -1);
+        if(solution == -1) return new ArrayList<>();
+        return visited.pathTo(solution);
+    }
+
+    /**
+     * Private helper that finds the first solution of a level, in parallel
+     * @param visited The visited table holding the level
+     * @param levelStart The index of the first state of the level
+     * @param levelEnd The index after the last state of the level
+     * @param pool The pool used to test the states
+     * @return The index of the first solution in the level, or -1 if there is none
+     */
+    private static int firstSolution(StateTable visited, int levelStart, int levelEnd, ForkJoinPool pool){
+        try {
+            OptionalInt first = pool.submit(() -> IntStream.range(levelStart, levelEnd).parallel()
+                    .filter(i -> visited.get(i).isSolution())
+                    .findFirst()).get();
+            return first.orElse(-1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while testing for a solution", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Solution test failed", e.getCause());
+        }
+    }
+
+    /**
+     * The neighbors generated by one chunk of a level. Each neighbor is stored with the index of its parent
+     *  and the key it used to claim itself, the position of the parent in the level and the position of the
+     *  neighbor in the parent's list of neighbors.
+     */
+    private static class Batch {
+        /** The neighbors that were not in the visited table when they were generated */
+        private final List<Configuration> neighbors = new ArrayList<>();
+        /** The parent index of each neighbor */
+        private int[] parents = new int[16];
+        /** The claim key of each neighbor */
+        private long[] keys = new long[16];
+        /** The amount of neighbors in this batch */
+        private int size = 0;
+        /** The amount of neighbors generated by this chunk, including the ones already visited */
+        private int generated = 0;
+
+        /**
+         * Adds a neighbor to this batch
+         * @param neighbor The neighbor
+         * @param parent The index of its parent
+         * @param key The key it was claimed with
+         */
+        private void add(Configuration neighbor, int parent, long key){
+            if(size == parents.length){
+                parents = Arrays.copyOf(parents, size << 1);
+                keys = Arrays.copyOf(keys, size << 1);
+            }
+            neighbors.add(neighbor);
+            parents[size] = parent;
+            keys[size] = key;
+            size++;
+        }
+    }
+
+    /**
+     * Fork/join task that expands a range of chunks of a level. A task splits itself in half until it holds a
+     *  single chunk, which is then expanded into its own Batch.
+     */
+    private static class ExpandTask extends RecursiveAction {
+        /** RecursiveAction is Serializable, although a task is never serialized */
+        private static final long serialVersionUID = 1L;
+        /** The visited table, only read while a level is expanded */
+        private final StateTable visited;
+        /** The lowest claim key of every neighbor generated in this level */
+        private final ConcurrentHashMap<Configuration, Long> claims;
+        /** Where each chunk stores its Batch */
+        private final Batch[] batches;
+        /** The index of the first state of the level */
+        private final int levelStart;
+        /** The index after the last state of the level */
+        private final int levelEnd;
+        /** The first chunk of this task */
+        private final int fromChunk;
+        /** The chunk after the last chunk of this task */
+        private final int toChunk;
+
+        /**
+         * Constructor for a task over the chunks [fromChunk, toChunk) of a level
+         * @param visited The visited table
+         * @param claims The claims of the level
+         * @param batches Where each chunk stores its Batch
+         * @param levelStart The index of the first state of the level
+         * @param levelEnd The index after the last state of the level
+         * @param fromChunk The first chunk
+         * @param toChunk The chunk after the last chunk
+         */
+        private ExpandTask(StateTable visited, ConcurrentHashMap<Configuration, Long> claims, Batch[] batches,
+                           int levelStart, int levelEnd, int fromChunk, int toChunk){
+            this.visited = visited;
+            this.claims = claims;
+            this.batches = batches;
+            this.levelStart = levelStart;
+            this.levelEnd = levelEnd;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute(){
+            if(toChunk - fromChunk > 1){
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new ExpandTask(visited, claims, batches, levelStart, levelEnd, fromChunk, middle),
+                        new ExpandTask(visited, claims, batches, levelStart, levelEnd, middle, toChunk));
+                return;
+            }
+            long levelSize = levelEnd - levelStart;
+            int from = levelStart + (int) (levelSize * fromChunk / batches.length);
+            int to = levelStart + (int) (levelSize * toChunk / batches.length);
+            Batch batch = new Batch();
+            for(int parent = from; parent < to; parent++){
+                List<Configuration> neighbors = visited.get(parent).getNeighbors();
+                batch.generated += neighbors.size();
+                for(int ordinal = 0; ordinal < neighbors.size(); ordinal++){
+                    Configuration neighbor = neighbors.get(ordinal);
+                    if(visited.indexOf(neighbor) != -1) continue;
+                    long key = ((long) (parent - levelStart) << 32) | ordinal;
+                    if(claims.merge(neighbor, key, Math::min) == key)
+                        batch.add(neighbor, parent, key);
+                }
+            }
+            batches[fromChunk] = batch;
+        }
+    }
+}
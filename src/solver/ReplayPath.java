@@ -0,0 +1,69 @@
+package solver;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A path kept as its first Configuration and the labels of the moves that follow it. A Configuration is only
+ *  built the first time it is asked for, by replaying the moves from the last one that was built, so a path
+ *  that is only counted or only partly printed never builds the rest.
+ * @author Damon Gonzalez
+ */
+public class ReplayPath extends AbstractList<Configuration> implements RandomAccess {
+    /** The labels of the moves, one byte each */
+    private final byte[] moves;
+    /** The Configurations built so far, index 0 is the start */
+    private final Configuration[] built;
+    /** The amount of Configurations built so far */
+    private int builtCount = 1;
+
+    /**
+     * Public constructor for a ReplayPath
+     * @param start The first Configuration of the path
+     * @param moves The labels of the moves, as given by SearchDomain.forEachMove()
+     */
+    public ReplayPath(Configuration start, byte[] moves){
+        this.moves = moves;
+        this.built = new Configuration[moves.length + 1];
+        this.built[0] = start;
+    }
+
+    /**
+     * Public getter for a Configuration of the path, replays the moves up to it if needed
+     * @param index The position in the path, 0 is the start
+     * @return The Configuration at that position
+     */
+    @Override
+    public Configuration get(int index){
+        if(index < 0 || index >= built.length) throw new IndexOutOfBoundsException(index);
+        while(builtCount <= index){
+            built[builtCount] = built[builtCount - 1].applyMove(moves[builtCount - 1] & 0xFF);
+            builtCount++;
+        }
+        return built[index];
+    }
+
+    /** Public getter for the amount of Configurations in the path */
+    @Override
+    public int size() { return built.length; }
+
+    /**
+     * Public getter for the label of a move of the path
+     * @param index The position of the move, move i leads from get(i) to get(i + 1)
+     * @return The label, from 0 to 255
+     */
+    public int getMove(int index) { return moves[index] & 0xFF; }
+
+    /**
+     * Describes every move of the path
+     * @param domain The SearchDomain the moves were labelled by
+     * @return One description per move
+     */
+    public List<String> describeMoves(SearchDomain domain){
+        String[] descriptions = new String[moves.length];
+        for(int i = 0; i < moves.length; i++) descriptions[i] = domain.describeMove(moves[i] & 0xFF);
+        return Arrays.asList(descriptions);
+    }
+}
@@ -0,0 +1,83 @@
+package solver;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A puzzle described through states encoded as primitive longs, so that a search can run without creating a
+ *  Configuration for every state it visits. Two states are the same exactly when their codes are equal.
+ *  Configurations are only built by decode(), for the states of the final path. Implementations may reuse
+ *  internal buffers and are not required to be thread safe.
+ * @author Damon Gonzalez
+ */
+public interface SearchDomain {
+    /** The code of the state the search starts from */
+    long getStart();
+    /** Returns true if the encoded state is a solution */
+    boolean isSolution(long state);
+    /**
+     * Generates the codes of the neighbors of an encoded state, in the same order getNeighbors() would
+     * @param state The encoded state
+     * @param action Called once with the code of each neighbor
+     */
+    void forEachNeighbor(long state, LongConsumer action);
+    /**
+     * Generates the neighbors of an encoded state together with the label of the move that reaches each of
+     * them. A label is a number from 0 to 255 that Configuration.applyMove() of the decoded state understands.
+     * By default the label is the position of the neighbor in the order of forEachNeighbor(), which is what
+     * the default Configuration.applyMove() expects.
+     * @param state The encoded state
+     * @param action Called once with the code and the move of each neighbor
+     */
+    default void forEachMove(long state, MoveConsumer action) {
+        int[] ordinal = {0};
+        forEachNeighbor(state, neighbor -> action.accept(neighbor, ordinal[0]++));
+    }
+    /**
+     * Describes the label of a move for the step printout
+     * @param move The label
+     * @return A short description of the move
+     */
+    default String describeMove(int move) { return "move " + move; }
+    /** Builds the Configuration that an encoded state represents */
+    Configuration decode(long state);
+    /**
+     * The inverse of decode(), encodes a Configuration of this puzzle that is reachable from the start
+     * @param config The Configuration
+     * @return Its code
+     */
+    long encode(Configuration config);
+    /**
+     * The amount of low bytes of a code that can be non zero, used by a StateStore to size its records
+     * @return A number from 1 to 8, 8 by default
+     */
+    default int getStateBytes() { return Long.BYTES; }
+    /**
+     * The amount of codes when every code is a dense rank, a number from 0 to the amount - 1, so that a
+     *  DenseStateStore can mark visited states in a bit array indexed by the code
+     * @return The amount of codes, or -1 if the codes are not dense, -1 by default
+     */
+    default long getStateCount() { return -1; }
+    /**
+     * Tells apart the ways a domain can encode the same puzzle, so that codes saved under one encoding, by a
+     *  DistanceOracle or a SolutionCache, are never read under another
+     * @return A number that differs between the encodings of this domain, 0 by default
+     */
+    default long getEncodingId() { return 0; }
+    /**
+     * Helper for implementations of getStateBytes(), rounds an amount of bits up to whole bytes
+     * @param bits The amount of bits a code uses
+     * @return The amount of bytes that holds that many bits, at least 1
+     */
+    static int bytesFor(long bits) { return (int) Math.max(1, Math.min(Long.BYTES, (bits + Byte.SIZE - 1) / Byte.SIZE)); }
+
+    /** Receives a neighbor and the label of the move that reaches it */
+    @FunctionalInterface
+    interface MoveConsumer {
+        /**
+         * Receives one neighbor
+         * @param neighbor The code of the neighbor
+         * @param move The label of the move, from 0 to 255
+         */
+        void accept(long neighbor, int move);
+    }
+}
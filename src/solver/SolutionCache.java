@@ -0,0 +1,437 @@
+package solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the result of every search made for a hint, so that the same hint is never searched for twice. An
+ *  entry is keyed by the identity of the puzzle and the code of a state in its SearchDomain, and holds the
+ *  distance of that state to the solution and the code of the next state on the way there. Every state of a
+ *  path that was found is stored, so following a hint leads to states whose hints are already known.
+ *  There are two tiers. The memory tier is a least recently used map, bounded both by its amount of entries
+ *  and by an estimate of the bytes they take. The disk tier is a file that records are only ever appended to,
+ *  with an index of where the record of each key is, so results survive a restart of the program and an
+ *  entry evicted from memory is read back from disk instead of being searched for again. The index is an open
+ *  addressing table of primitive arrays, INDEX_SLOT_BYTES per slot and at most half full, and it is kept in
+ *  memory, so it counts towards the same byte limit as the memory tier: it may take at most half of it, and
+ *  once it can not grow any more new results are only kept in memory. When the file is opened, records that are
+ *  repeated or that do not fit into the index are dropped by writing the others to a new file that replaces it
+ *  in one move, so the file itself is only ever appended to. Only one program at a time may use the file: it is
+ *  guarded by an exclusive lock on a .lock file next to it, and a program that finds the lock taken, like a
+ *  second user interface started on the same data, keeps its results in memory only.
+ * @author Damon Gonzalez
+ */
+public class SolutionCache implements AutoCloseable {
+    /** The distance of a state from which the solution can not be reached */
+    public static final int UNSOLVABLE = -1;
+    /** The first bytes of the file, "SOLC" */
+    private static final int MAGIC = 0x534F4C43;
+    /** The version of the file layout */
+    private static final int VERSION = 1;
+    /** The size of the file header, MAGIC and VERSION */
+    private static final int HEADER_BYTES = 8;
+    /** The size of one record in the file, the puzzle, the state, the next state and the distance */
+    private static final int RECORD_BYTES = 3 * Long.BYTES + Integer.BYTES;
+    /** An estimate of the heap taken by one entry of the memory tier, its key, its entry and its map node */
+    static final int ENTRY_BYTES = 112;
+    /** The heap taken by one slot of the disk index, the puzzle, the state and the record number */
+    static final int INDEX_SLOT_BYTES = 2 * Long.BYTES + Integer.BYTES;
+
+    /** The cache shared by the models, created by getDefault() */
+    private static SolutionCache defaultCache = null;
+
+    /** The most entries the memory tier may hold */
+    private final int maxEntries;
+    /** The most bytes the memory tier and the disk index may take together, as estimated with ENTRY_BYTES */
+    private final long maxBytes;
+    /** The memory tier, in order of last access */
+    private final LinkedHashMap<Key, Entry> memory;
+    /** The puzzle of the key in each slot of the disk index */
+    private long[] indexPuzzles = new long[0];
+    /** The state of the key in each slot of the disk index */
+    private long[] indexStates = new long[0];
+    /** The number of the record of each slot of the disk index plus one, 0 if the slot is empty */
+    private int[] indexRecords = new int[0];
+    /** The amount of keys in the disk index, which is the amount of records in the file */
+    private int diskSize = 0;
+    /** The file of the disk tier, or null if there is none */
+    private FileChannel file;
+    /** The lock on the .lock file that keeps other programs away from the file, or null if there is no file */
+    private FileLock lock;
+    /** The amount of lookups answered by the memory tier */
+    private long hits = 0;
+    /** The amount of lookups answered by the disk tier */
+    private long diskHits = 0;
+    /** The amount of lookups that were not answered */
+    private long misses = 0;
+    /** The amount of entries evicted from the memory tier */
+    private long evictions = 0;
+
+    /**
+     * Public constructor for a SolutionCache, reads the index of the disk tier if the file exists. If another
+     *  program holds the lock of the file, only the memory tier is used.
+     * @param maxEntries The most entries kept in memory
+     * @param maxBytes The most bytes kept in memory, by the memory tier and the index of the disk tier together
+     * @param path The file of the disk tier, created if missing, or null to only keep entries in memory
+     */
+    public SolutionCache(int maxEntries, long maxBytes, Path path) throws IOException {
+        if(maxEntries < 1 || maxBytes / 2 < ENTRY_BYTES)
+            throw new IllegalArgumentException("the memory tier must hold at least one entry");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest){
+                if(size() <= SolutionCache.this.maxEntries
+                        && (long) size() * ENTRY_BYTES + getIndexBytes() <= SolutionCache.this.maxBytes) return false;
+                evictions++;
+                return true;
+            }
+        };
+        if(path != null && lock(path)){
+            file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            readIndex(path);
+        }
+    }
+
+    /**
+     * Gets the cache shared by every model, opened on first use. Its file is set by -Dsolver.cacheFile,
+     *  data/solutions.cache by default, or an empty string for none, the memory tier is bounded by
+     *  -Dsolver.cacheEntries, 100000 by default, and both the memory tier and the disk index by
+     *  -Dsolver.cacheBytes, 16 MB by default, which lets the disk tier hold 131072 records.
+     *  If the file can not be opened, only the memory tier is used.
+     * @return The shared cache
+     */
+    public static synchronized SolutionCache getDefault(){
+        if(defaultCache == null){
+            int entries = Integer.getInteger("solver.cacheEntries", 100_000);
+            long bytes = Long.getLong("solver.cacheBytes", 16L << 20);
+            String name = System.getProperty("solver.cacheFile", "data/solutions.cache");
+            try {
+                defaultCache = new SolutionCache(entries, bytes, name.isEmpty() ? null : Path.of(name));
+            } catch (IOException e) {
+                System.out.println("Unable to open the solution cache:" + name);
+                try {
+                    defaultCache = new SolutionCache(entries, bytes, null);
+                } catch (IOException impossible) {
+                    throw new IllegalStateException(impossible);
+                }
+            }
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Computes the identity of a puzzle, from the kind of puzzle, the way its states are encoded and the
+     *  checksum of the file it was loaded from
+     * @param domain The SearchDomain of the puzzle
+     * @param puzzleFile The file
+     * @return The identity
+     */
+    public static long puzzleId(SearchDomain domain, Path puzzleFile) throws IOException {
+        return ((long) domain.getClass().getName().hashCode() << 32 ^ DistanceOracle.checksum(puzzleFile))
+                + domain.getEncodingId() * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Looks up a state, first in memory and then on disk. An entry found on disk is brought back into memory.
+     * @param puzzle The identity of the puzzle
+     * @param state The code of the state
+     * @return The entry, or null if the state has not been searched from
+     */
+    public synchronized Entry get(long puzzle, long state){
+        Key key = new Key(puzzle, state);
+        Entry entry = memory.get(key);
+        if(entry != null){
+            hits++;
+            return entry;
+        }
+        int slot = diskSize == 0 ? -1 : findSlot(puzzle, state);
+        if(slot != -1 && indexRecords[slot] != 0){
+            try {
+                long offset = HEADER_BYTES + (indexRecords[slot] - 1L) * RECORD_BYTES;
+                ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+                while(record.hasRemaining() && file.read(record, offset + record.position()) > 0);
+                entry = new Entry(record.getInt(3 * Long.BYTES), record.getLong(2 * Long.BYTES));
+                memory.put(key, entry);
+                diskHits++;
+                return entry;
+            } catch (IOException e) {
+                System.out.println("Unable to read from the solution cache");
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Stores every state of a shortest path, each with its distance to the last state and the state after it
+     * @param puzzle The identity of the puzzle
+     * @param domain The SearchDomain that encodes the states of the puzzle
+     * @param path The path, ending in a solution, found by a solver whose isExact() is true
+     */
+    public synchronized void putPath(long puzzle, SearchDomain domain, List<Configuration> path){
+        long next = 0;
+        for(int i = path.size() - 1; i >= 0; i--){
+            long state = domain.encode(path.get(i));
+            put(new Key(puzzle, state), new Entry(path.size() - 1 - i, i == path.size() - 1 ? state : next));
+            next = state;
+        }
+    }
+
+    /**
+     * Stores a state from which the solution can not be reached, as reported by a solver whose isExact() is true
+     * @param puzzle The identity of the puzzle
+     * @param state The code of the state
+     */
+    public synchronized void putUnsolvable(long puzzle, long state){
+        put(new Key(puzzle, state), new Entry(UNSOLVABLE, state));
+    }
+
+    /** Public getter for the amount of lookups answered from memory */
+    public synchronized long getHits() { return hits; }
+
+    /** Public getter for the amount of lookups answered from disk */
+    public synchronized long getDiskHits() { return diskHits; }
+
+    /** Public getter for the amount of lookups that were not answered */
+    public synchronized long getMisses() { return misses; }
+
+    /** Public getter for the amount of entries evicted from memory */
+    public synchronized long getEvictions() { return evictions; }
+
+    /** Public getter for the amount of entries in memory */
+    public synchronized int size() { return memory.size(); }
+
+    /** Public getter for the amount of entries on disk */
+    public synchronized int getDiskSize() { return diskSize; }
+
+    /** Public getter for an estimate of the bytes taken by the entries in memory and by the disk index */
+    public synchronized long getBytesUsed() { return (long) memory.size() * ENTRY_BYTES + getIndexBytes(); }
+
+    @Override
+    public synchronized void close() throws IOException {
+        memory.clear();
+        indexPuzzles = new long[0];
+        indexStates = new long[0];
+        indexRecords = new int[0];
+        diskSize = 0;
+        try {
+            if(file != null) file.close();
+        } finally {
+            if(lock != null){
+                lock.release();
+                lock.channel().close();
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString(){
+        return String.format("%d hits, %d disk hits, %d misses, %d evictions, %d entries in memory, %d on disk",
+                hits, diskHits, misses, evictions, memory.size(), diskSize);
+    }
+
+    /**
+     * Private helper that stores an entry in memory, and appends it to the file unless the file already has it or
+     *  the disk index is full
+     * @param key The key
+     * @param entry The entry
+     */
+    private void put(Key key, Entry entry){
+        memory.put(key, entry);
+        if(file == null || !canIndex()) return;
+        int slot = findSlot(key.puzzle(), key.state());
+        if(indexRecords[slot] != 0) return;
+        try {
+            long offset = HEADER_BYTES + (long) diskSize * RECORD_BYTES;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+            record.putLong(key.puzzle()).putLong(key.state()).putLong(entry.getNext()).putInt(entry.getDistance());
+            record.flip();
+            while(record.hasRemaining()) file.write(record, offset + record.position());
+            index(slot, key.puzzle(), key.state(), diskSize++);
+        } catch (IOException e) {
+            System.out.println("Unable to write to the solution cache");
+        }
+    }
+
+    /**
+     * Private helper that takes the exclusive lock of the file of the disk tier
+     * @param path The file of the disk tier
+     * @return True if the lock was taken, false if another program or another cache holds it
+     */
+    private boolean lock(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path.resolveSibling(path.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if(lock == null){
+            channel.close();
+            System.out.println("The solution cache is in use, keeping results in memory only:" + path);
+        }
+        return lock != null;
+    }
+
+    /**
+     * Private helper that writes the header of a new file, or checks the header of an existing one and reads where
+     *  each record is. If a record repeats a key or does not fit into the index, or a half written record was
+     *  left at the end by a program that stopped while appending, the records that are kept are written to a new
+     *  file that then replaces the old one.
+     * @param path The file of the disk tier
+     */
+    private void readIndex(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if(file.size() < HEADER_BYTES){
+            file.truncate(0);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            while(header.hasRemaining()) file.write(header, header.position());
+            return;
+        }
+        while(header.hasRemaining() && file.read(header, header.position()) > 0);
+        if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            throw new IOException("not a solution cache of version " + VERSION);
+        long end = HEADER_BYTES + (file.size() - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel compacted = null;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 4096);
+            long offset = HEADER_BYTES;
+            while(offset < end){
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - offset));
+                while(buffer.hasRemaining() && file.read(buffer, offset + buffer.position()) > 0);
+                buffer.flip();
+                for(int at = 0; at + RECORD_BYTES <= buffer.limit(); at += RECORD_BYTES){
+                    long puzzle = buffer.getLong(at), state = buffer.getLong(at + Long.BYTES);
+                    int slot = canIndex() ? findSlot(puzzle, state) : -1;
+                    if(slot == -1 || indexRecords[slot] != 0){
+                        if(compacted == null) compacted = startCompacting(temporary, offset + at);
+                        continue;
+                    }
+                    if(compacted != null){
+                        ByteBuffer record = buffer.slice(at, RECORD_BYTES);
+                        while(record.hasRemaining()) compacted.write(record);
+                    }
+                    index(slot, puzzle, state, diskSize++);
+                }
+                offset += buffer.limit();
+            }
+            if(compacted == null && end != file.size()) compacted = startCompacting(temporary, end);
+            if(compacted == null) return;
+            compacted.force(false);
+            compacted.close();
+            file.close();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } finally {
+            if(compacted != null && compacted.isOpen()){
+                compacted.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Private helper that starts the new file of a compaction with the records before the first one dropped
+     * @param temporary The new file
+     * @param kept The offset of the first record that is dropped, every record before it is kept
+     * @return The channel of the new file, positioned after the records copied
+     */
+    private FileChannel startCompacting(Path temporary, long kept) throws IOException {
+        FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        for(long copied = 0; copied < kept; ) copied += file.transferTo(copied, kept - copied, compacted);
+        return compacted;
+    }
+
+    /**
+     * Private helper that finds the slot of a key in the disk index
+     * @param puzzle The puzzle of the key
+     * @param state The state of the key
+     * @return The slot holding the key, or the empty slot where it would go
+     */
+    private int findSlot(long puzzle, long state){
+        int mask = indexRecords.length - 1;
+        int slot = LongStateTable.hash(state ^ Long.rotateLeft(puzzle, 32)) & mask;
+        while(indexRecords[slot] != 0 && (indexPuzzles[slot] != puzzle || indexStates[slot] != state))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Private helper that puts a key into an empty slot of the disk index
+     * @param slot The slot found by findSlot()
+     * @param puzzle The puzzle of the key
+     * @param state The state of the key
+     * @param record The number of its record in the file
+     */
+    private void index(int slot, long puzzle, long state, int record){
+        indexPuzzles[slot] = puzzle;
+        indexStates[slot] = state;
+        indexRecords[slot] = record + 1;
+    }
+
+    /**
+     * Private helper that makes room in the disk index for one more key, doubling it when it would be more than
+     *  half full, as long as it then takes at most half of maxBytes
+     * @return True if there is room, false if the disk tier is full
+     */
+    private boolean canIndex(){
+        if((diskSize + 1) * 2L <= indexRecords.length) return true;
+        long slots = Math.max(64, (long) indexRecords.length << 1);
+        if(slots * INDEX_SLOT_BYTES > maxBytes / 2 || slots > 1 << 30) return false;
+        long[] puzzles = indexPuzzles, states = indexStates;
+        int[] records = indexRecords;
+        indexPuzzles = new long[(int) slots];
+        indexStates = new long[(int) slots];
+        indexRecords = new int[(int) slots];
+        for(int slot = 0; slot < records.length; slot++){
+            if(records[slot] != 0)
+                index(findSlot(puzzles[slot], states[slot]), puzzles[slot], states[slot], records[slot] - 1);
+        }
+        return true;
+    }
+
+    /** Private helper that returns the bytes taken by the disk index */
+    private long getIndexBytes() { return (long) indexRecords.length * INDEX_SLOT_BYTES; }
+
+    /** The key of an entry, a state of a puzzle */
+    private record Key(long puzzle, long state) {}
+
+    /** What is known about a state */
+    public static class Entry {
+        /** The amount of moves to the solution, or UNSOLVABLE */
+        private final int distance;
+        /** The code of the next state on the way to the solution, the state itself if it is solved or unsolvable */
+        private final long next;
+
+        /**
+         * Constructor for an Entry
+         * @param distance The amount of moves to the solution, or UNSOLVABLE
+         * @param next The code of the next state
+         */
+        private Entry(int distance, long next){
+            this.distance = distance;
+            this.next = next;
+        }
+
+        /** Public getter for the amount of moves to the solution, 0 if the state is solved, or UNSOLVABLE */
+        public int getDistance() { return distance; }
+
+        /** Public getter for the code of the next state on the way to the solution */
+        public long getNext() { return next; }
+    }
+}
@@ -0,0 +1,43 @@
+package solver;
+
+/**
+ * The limits of a search, given to Solver.setOptions(). A search that reaches one of them returns an empty
+ *  path, and Solver.getStatus() tells which limit stopped it. The statistics of the Solver describe the part
+ *  of the search that was done. Engines that work one level at a time check the limits between levels, so
+ *  they may go past a limit by up to one level.
+ * @author Damon Gonzalez
+ */
+public class SolveOptions {
+    /** Options without any limit, the default of every Solver */
+    public static final SolveOptions NONE = new SolveOptions(0, 0, null);
+
+    /** The wall clock time a search may take in milliseconds, 0 for no limit */
+    private final long timeoutMillis;
+    /** The amount of configurations a search may expand, 0 for no limit */
+    private final long maxExpanded;
+    /** The token that cancels a search, or null */
+    private final CancellationToken token;
+
+    /**
+     * Public constructor for SolveOptions
+     * @param timeoutMillis The wall clock time a search may take in milliseconds, 0 for no limit
+     * @param maxExpanded The amount of configurations a search may expand, 0 for no limit
+     * @param token The token that cancels a search, or null if it can not be cancelled
+     */
+    public SolveOptions(long timeoutMillis, long maxExpanded, CancellationToken token){
+        if(timeoutMillis < 0) throw new IllegalArgumentException("timeoutMillis must not be negative: " + timeoutMillis);
+        if(maxExpanded < 0) throw new IllegalArgumentException("maxExpanded must not be negative: " + maxExpanded);
+        this.timeoutMillis = timeoutMillis;
+        this.maxExpanded = maxExpanded;
+        this.token = token;
+    }
+
+    /** Public getter for the time a search may take in milliseconds, 0 for no limit */
+    public long getTimeoutMillis() { return timeoutMillis; }
+
+    /** Public getter for the amount of configurations a search may expand, 0 for no limit */
+    public long getMaxExpanded() { return maxExpanded; }
+
+    /** Public getter for the token that cancels a search, null if there is none */
+    public CancellationToken getToken() { return token; }
+}
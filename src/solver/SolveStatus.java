@@ -0,0 +1,26 @@
+package solver;
+
+/**
+ * How a search ended, given by Solver.getStatus()
+ * @author Damon Gonzalez
+ */
+public enum SolveStatus {
+    /** A path to a solution was found */
+    SOLVED,
+    /** Every reachable configuration was searched and none is a solution */
+    NO_SOLUTION,
+    /** The search reached the deadline of its SolveOptions */
+    DEADLINE_EXCEEDED,
+    /** The search expanded the maximum amount of configurations of its SolveOptions */
+    BUDGET_EXCEEDED,
+    /** The CancellationToken of its SolveOptions was cancelled */
+    CANCELLED,
+    /** The visited states filled the memory the solver was allowed to use */
+    MEMORY_EXCEEDED;
+
+    /**
+     * Tells if the search ran to its end, in which case an empty path really means there is no solution
+     * @return True for SOLVED and NO_SOLUTION, false if the search was stopped early
+     */
+    public boolean isFinished() { return this == SOLVED || this == NO_SOLUTION; }
+}
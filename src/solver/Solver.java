@@ -9,49 +9,102 @@ import java.util.*;
  */
 public class Solver {
     /** The total amount of configs generated by this Solver, must be at least 1 after BFS() is run*/
-    private int totalConfigs = 0;
+    protected int totalConfigs = 0;
     /** The amount of unique configurations, essentially the amount of valid ones the solver generated in its process, must also be at least 1 after BFS() is run */
-    private int uniqueConfigs = 0;
+    protected int uniqueConfigs = 0;
+    /** The amount of configurations whose neighbors were generated by the last search */
+    protected int expandedConfigs = 0;
+    /** How the last search ended, null if BFS() was not called */
+    protected SolveStatus status = null;
+    /** The limits of every search */
+    private SolveOptions options = SolveOptions.NONE;
+    /** The System.nanoTime() at which the current search reaches its deadline */
+    private long deadline = 0;
+
+    /**
+     * Creates the solver selected by the "solver.engine" system property, so that every puzzle can switch
+     * search engines without changes, e.g. java -Dsolver.engine=parallel -Dsolver.threads=8 ...
+     * Known engines are "bfs"(the default), "parallel", "bidirectional", "astar", "encoded", which keeps its
+     * states off the heap with -Dsolver.store=offheap, in at most -Dsolver.memory megabytes if that is set, or as one bit per code with -Dsolver.store=dense when the
+     * codes of the puzzle are dense ranks, and "external", which keeps its levels in the directory
+     * -Dsolver.scratch and buffers at most -Dsolver.memory megabytes of neighbors, and "bitstate", which marks
+     * visited states with -Dsolver.hashes bits in a bit array of -Dsolver.memory megabytes, and only answers
+     * if the puzzle is solvable with -Dsolver.solvableOnly=true, through isSolvable() with an empty path.
+     * @return A new Solver
+     */
+    public static Solver create(){
+        String engine = System.getProperty("solver.engine", "bfs");
+        return switch (engine) {
+            case "bfs" -> new Solver();
+            case "parallel" -> new ParallelSolver(Integer.getInteger("solver.threads",
+                    Runtime.getRuntime().availableProcessors()));
+            case "bidirectional" -> new BidirectionalSolver();
+            case "astar" -> new AStarSolver();
+            case "encoded" -> new EncodedSolver(switch (System.getProperty("solver.store", "heap")) {
+                case "offheap" -> EncodedSolver.Storage.OFF_HEAP;
+                case "dense" -> EncodedSolver.Storage.DENSE;
+                default -> EncodedSolver.Storage.HEAP;
+            });
+            case "external" -> new ExternalSolver(
+                    java.nio.file.Path.of(System.getProperty("solver.scratch", System.getProperty("java.io.tmpdir"))),
+                    Long.getLong("solver.memory", 256) << 20);
+            case "bitstate" -> new BitstateSolver(Long.getLong("solver.memory", 256) << 23,
+                    Integer.getInteger("solver.hashes", 3), !Boolean.getBoolean("solver.solvableOnly"));
+            default -> throw new IllegalArgumentException("Unknown solver.engine: " + engine);
+        };
+    }
+
     /**
      * This method will hold the BFS algorithm that can be used across all graph
      * related puzzles. It will be given a node(Configuration) in the graph to start with;
      * computing the path from there. When the algorithm terminates it will return a List representing
      * the shortest path between two nodes in the graph. If the List is empty, there is no path.
+     * Visited configurations are kept in a StateTable that links each one to the index of its predecessor,
+     * and the queue only holds those indices. Neighbors are streamed through Configuration.forEachNeighbor()
+     * and each new one is tested as soon as it is generated, so the search stops without generating the
+     * rest of the level that holds the solution. The search also stops when it reaches a limit of its
+     * SolveOptions, getStatus() tells how it ended. With -Dsolver.profile=true the time of each phase is
+     * charged to the SolverProfile of the puzzle type.
      * @param startConfig The initial Configuration
      * @return The path that is calculated
      */
     public List<Configuration> BFS(Configuration startConfig){
-        List<Configuration> queue = new LinkedList<>();
-        Map<Configuration, Configuration> predecessorMap = new HashMap<>();
-        queue.add(startConfig);
-        predecessorMap.put(startConfig, null);
-        totalConfigs = 1;
-        Configuration solution = null;
-        while(queue.size() != 0){
-            Configuration currentConfig = queue.remove(0);
-            List<Configuration> neighbors = currentConfig.getNeighbors();
-            if(currentConfig.isSolution()) {
-                solution = currentConfig;
-                queue.clear();
-                break;
-            }
-            totalConfigs += neighbors.size();
-            for (Configuration neighbor : neighbors){
-                if(!predecessorMap.containsKey(neighbor)){
-                    queue.add(neighbor);
-                    predecessorMap.put(neighbor, currentConfig);
+        startSearch();
+        StateTable visited = new StateTable(1024);
+        IntRingBuffer queue = new IntRingBuffer(1024);
+        SolverProfile profile = SolverProfile.ENABLED ? SolverProfile.of(startConfig) : null;
+        if(SolverProfile.ENABLED){
+            profile.startSearch();
+            visited.setProfile(profile);
+        }
+        int start = visited.add(startConfig, StateTable.NO_PARENT);
+        Expander expander = new Expander(visited, queue, profile);
+        if(startConfig.isSolution()) expander.solution = start;
+        else queue.add(start);
+        int depth = 0;
+        int levelEnd = 1;
+        if(SolverProfile.ENABLED) profile.frontier(depth, 1);
+        while(!queue.isEmpty() && expander.solution == -1 && !isStopped()){
+            expander.parent = queue.remove();
+            if(SolverProfile.ENABLED){
+                profile.lap(SolverProfile.Phase.QUEUE);
+                if(expander.parent == levelEnd){//THE NEXT LEVEL IS COMPLETE ONCE ITS FIRST STATE IS DEQUEUED
+                    profile.frontier(++depth, visited.size() - levelEnd);
+                    levelEnd = visited.size();
                 }
             }
+            expandedConfigs++;
+            visited.get(expander.parent).forEachNeighbor(expander);
+            if(SolverProfile.ENABLED) profile.lap(SolverProfile.Phase.NEIGHBORS);
         }
-        uniqueConfigs = predecessorMap.size();
-        List<Configuration> path = new ArrayList<>();
-        if(solution != null) {
-            Configuration traversalConfig = solution;
-            path.add(0, traversalConfig);
-            while (!startConfig.equals(traversalConfig)) {
-                traversalConfig = predecessorMap.get(traversalConfig);
-                path.add(0, traversalConfig);
-            }
+        totalConfigs = 1 + expander.generated;
+        uniqueConfigs = visited.size();
+        endSearch(expander.solution != -1);
+        List<Configuration> path = expander.solution == -1 ? new ArrayList<>() : visited.pathTo(expander.solution);
+        if(SolverProfile.ENABLED){
+            profile.lap(SolverProfile.Phase.PATH);
+            if(visited.size() > levelEnd) profile.frontier(depth + 1, visited.size() - levelEnd);
+            profile.endSearch(expandedConfigs, expander.generated, uniqueConfigs - 1);
         }
         return path;
     }
@@ -60,4 +113,102 @@ public class Solver {
     public int getTotalConfigs() { return totalConfigs; }
     /** Public getter for the amount of unique configurations generated by the BFS method, returns 0 if BFS() was not called */
     public int getUniqueConfigs() { return uniqueConfigs; }
+    /** Public getter for the amount of configurations expanded by the BFS method, returns 0 if BFS() was not called */
+    public int getExpandedConfigs() { return expandedConfigs; }
+    /** Public getter for how the last search ended, returns null if BFS() was not called */
+    public SolveStatus getStatus() { return status; }
+    /** Public getter for whether the last search reached a solution, even if the solver kept no path to it */
+    public boolean isSolvable() { return status == SolveStatus.SOLVED; }
+    /** Public getter for the limits of every search */
+    public SolveOptions getOptions() { return options; }
+    /**
+     * Public getter for whether the results of this solver are exact: a path it returns is a shortest path, and
+     *  a puzzle it reports unsolvable is unsolvable. Only exact results may be stored in a SolutionCache.
+     * @return True, unless overridden by an engine that can skip states
+     */
+    public boolean isExact() { return true; }
+
+    /**
+     * Sets the limits of every following search
+     * @param options The limits, SolveOptions.NONE for none
+     */
+    public void setOptions(SolveOptions options){
+        this.options = options;
+    }
+
+    /** Called by every engine at the start of a search, starts the clock of the deadline */
+    protected void startSearch(){
+        status = null;
+        expandedConfigs = 0;
+        deadline = System.nanoTime() + options.getTimeoutMillis() * 1_000_000;
+    }
+
+    /**
+     * Called by every engine before it expands more configurations, checks the limits of the options against
+     *  expandedConfigs and the clock. When a limit is reached the status is set to the reason.
+     * @return True if the search must stop
+     */
+    protected boolean isStopped(){
+        CancellationToken token = options.getToken();
+        if(token != null && token.isCancelled()) status = SolveStatus.CANCELLED;
+        else if(options.getMaxExpanded() > 0 && expandedConfigs >= options.getMaxExpanded()) status = SolveStatus.BUDGET_EXCEEDED;
+        else if(options.getTimeoutMillis() > 0 && System.nanoTime() - deadline >= 0) status = SolveStatus.DEADLINE_EXCEEDED;
+        return status != null;
+    }
+
+    /**
+     * Called by every engine at the end of a search, sets the status unless a limit already did
+     * @param solved True if a solution was found
+     */
+    protected void endSearch(boolean solved){
+        if(status == null) status = solved ? SolveStatus.SOLVED : SolveStatus.NO_SOLUTION;
+    }
+
+    /**
+     * The visitor given to each expanded Configuration. It adds new neighbors to the table and the queue,
+     *  and stops the expansion at the first new neighbor that is a solution.
+     */
+    private static class Expander implements Configuration.Visitor {
+        /** The visited states of the search */
+        private final StateTable visited;
+        /** The queue of indices waiting to be expanded */
+        private final IntRingBuffer queue;
+        /** The index of the state being expanded */
+        private int parent;
+        /** The index of the solution, or -1 if none has been found */
+        private int solution = -1;
+        /** The amount of neighbors generated so far */
+        private int generated = 0;
+        /** The profile of the search, null unless SolverProfile.ENABLED is true */
+        private final SolverProfile profile;
+
+        /**
+         * Constructor for the visitor of one search
+         * @param visited The visited states of the search
+         * @param queue The queue of the search
+         * @param profile The profile of the search, or null
+         */
+        private Expander(StateTable visited, IntRingBuffer queue, SolverProfile profile){
+            this.visited = visited;
+            this.queue = queue;
+            this.profile = profile;
+        }
+
+        @Override
+        public boolean visit(Configuration neighbor){
+            generated++;
+            if(SolverProfile.ENABLED) profile.lap(SolverProfile.Phase.NEIGHBORS);
+            int index = visited.add(neighbor, parent);
+            if(index == -1) return true;
+            boolean solved = neighbor.isSolution();
+            if(SolverProfile.ENABLED) profile.lap(SolverProfile.Phase.GOAL_TEST);
+            if(solved){
+                solution = index;
+                return false;
+            }
+            queue.add(index);
+            if(SolverProfile.ENABLED) profile.lap(SolverProfile.Phase.QUEUE);
+            return true;
+        }
+    }
 }
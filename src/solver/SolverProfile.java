@@ -0,0 +1,192 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optional profiling of the plain BFS, turned on with -Dsolver.profile=true. The time of a search is cut into
+ *  phases with one System.nanoTime() call at every boundary, each call charging the time since the previous
+ *  one to the phase that just ended. It also counts the states of every depth, the neighbors that were
+ *  already visited and the states expanded per second. One profile is kept per puzzle type, adding up every
+ *  search of that type, and all of them are printed to System.err when the program exits. Every hook is
+ *  behind the constant ENABLED, so when profiling is off the JIT compiler removes them.
+ * @author Damon Gonzalez
+ */
+public class SolverProfile {
+    /** True if profiling is on, read once when the class is loaded */
+    public static final boolean ENABLED = Boolean.getBoolean("solver.profile");
+
+    /** The phases the time of a search is cut into */
+    public enum Phase {
+        /** Generating neighbors, everything a Configuration does inside forEachNeighbor() */
+        NEIGHBORS,
+        /** Configuration.hashCode() of the states added to the visited table */
+        HASH_CODE,
+        /** Configuration.equals() between states with the same hash code */
+        EQUALS,
+        /** Probing and growing the visited table, apart from hashCode() and equals() */
+        TABLE,
+        /** Configuration.isSolution() */
+        GOAL_TEST,
+        /** Adding to and removing from the queue */
+        QUEUE,
+        /** Following the parents back to build the path */
+        PATH
+    }
+
+    /** The profile of each puzzle type, in the order they were first solved */
+    private static final Map<String, SolverProfile> PROFILES = new LinkedHashMap<>();
+
+    static {
+        if(ENABLED) Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(report())));
+    }
+
+    /** The simple name of the Configuration class this profile is for */
+    private final String puzzle;
+    /** The nanoseconds charged to each phase */
+    private final long[] phaseNanos = new long[Phase.values().length];
+    /** The amount of states at each depth, added up over every search */
+    private long[] frontier = new long[16];
+    /** The deepest depth with states plus one */
+    private int depths = 0;
+    /** The System.nanoTime() of the last boundary */
+    private long lastLap;
+    /** The System.nanoTime() at the start of the current search */
+    private long searchStart;
+    /** The amount of searches */
+    private int searches = 0;
+    /** The wall clock time of every search */
+    private long searchNanos = 0;
+    /** The amount of configurations expanded, generated and added to the visited table */
+    private long expanded = 0, generated = 0, unique = 0;
+    /** The amount of calls to equals() that found a state, and that did not */
+    private long equalHits = 0, equalMisses = 0;
+
+    /**
+     * Private constructor for the profile of one puzzle type
+     * @param puzzle The name of the puzzle type
+     */
+    private SolverProfile(String puzzle){
+        this.puzzle = puzzle;
+    }
+
+    /**
+     * Gets the profile of the puzzle type of a Configuration, creating it the first time
+     * @param config A Configuration of the puzzle
+     * @return The profile of its class
+     */
+    public static synchronized SolverProfile of(Configuration config){
+        return PROFILES.computeIfAbsent(config.getClass().getSimpleName(), SolverProfile::new);
+    }
+
+    /** Marks the start of a search, the time before it is not charged to any phase */
+    public void startSearch(){
+        searches++;
+        searchStart = System.nanoTime();
+        lastLap = searchStart;
+    }
+
+    /**
+     * Charges the time since the last boundary to a phase
+     * @param phase The phase that just ended
+     */
+    public void lap(Phase phase){
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - lastLap;
+        lastLap = now;
+    }
+
+    /**
+     * Records the result of one call to equals() made by the visited table
+     * @param equal True if the states were equal, i.e. the neighbor was a duplicate
+     */
+    public void countEquals(boolean equal){
+        if(equal) equalHits++;
+        else equalMisses++;
+    }
+
+    /**
+     * Records the amount of states at a depth
+     * @param depth The depth, 0 is the start
+     * @param size The amount of states first reached at that depth
+     */
+    public void frontier(int depth, int size){
+        if(depth >= frontier.length) frontier = Arrays.copyOf(frontier, Math.max(depth + 1, frontier.length << 1));
+        frontier[depth] += size;
+        depths = Math.max(depths, depth + 1);
+    }
+
+    /**
+     * Marks the end of a search
+     * @param expanded The amount of configurations expanded
+     * @param generated The amount of configurations generated
+     * @param unique The amount of configurations added to the visited table
+     */
+    public void endSearch(int expanded, int generated, int unique){
+        searchNanos += System.nanoTime() - searchStart;
+        this.expanded += expanded;
+        this.generated += generated;
+        this.unique += unique;
+    }
+
+    /**
+     * Public getter for the time charged to a phase
+     * @param phase The phase
+     * @return The nanoseconds charged to it over every search
+     */
+    public long getNanos(Phase phase) { return phaseNanos[phase.ordinal()]; }
+
+    /**
+     * Public getter for the fraction of generated neighbors that were already visited
+     * @return A number from 0 to 1
+     */
+    public double getDuplicateRatio() { return generated == 0 ? 0 : (double) (generated - unique) / generated; }
+
+    /**
+     * Public getter for the speed of the searches
+     * @return The configurations expanded per second of search
+     */
+    public double getStatesPerSecond() { return searchNanos == 0 ? 0 : expanded * 1e9 / searchNanos; }
+
+    /**
+     * Public getter for the amount of states at every depth, added up over every search
+     * @return One entry per depth, starting at the start
+     */
+    public long[] getFrontierSizes() { return Arrays.copyOf(frontier, depths); }
+
+    /**
+     * Describes every profile
+     * @return One block of lines per puzzle type followed by the Zobrist collision counts, empty if nothing was
+     *  profiled
+     */
+    public static synchronized String report(){
+        StringBuilder report = new StringBuilder();
+        for(SolverProfile profile : PROFILES.values()) report.append(profile);
+        if(!PROFILES.isEmpty()) report.append(Zobrist.report());
+        return report.toString();
+    }
+
+    /**
+     * Describes this profile
+     * @return The phases, counts and frontier sizes as lines of text
+     */
+    @Override
+    public String toString(){
+        StringBuilder message = new StringBuilder("Profile of " + puzzle + " (" + searches + " searches, "
+                + String.format("%.1f", searchNanos / 1e6) + " ms)\n");
+        for(Phase phase : Phase.values()){
+            message.append(String.format("  %-10s %10.3f ms %5.1f%%%n", phase, phaseNanos[phase.ordinal()] / 1e6,
+                    searchNanos == 0 ? 0 : 100.0 * phaseNanos[phase.ordinal()] / searchNanos));
+        }
+        message.append(String.format("  expanded %d, generated %d, unique %d, duplicates %.1f%%, %.0f states/s%n",
+                expanded, generated, unique, 100 * getDuplicateRatio(), getStatesPerSecond()));
+        message.append(String.format("  equals() hits %d, misses %d%n", equalHits, equalMisses));
+        List<String> sizes = new ArrayList<>();
+        for(int depth = 0; depth < depths; depth++) sizes.add(Long.toString(frontier[depth]));
+        message.append("  frontier by depth ").append(sizes).append("\n");
+        return message.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package solver;
+
+/**
+ * Storage for the visited states of the EncodedSolver. Every state that is added gets an index, in the order
+ *  it was added, and remembers the index of the state it was reached from and the label of the move that
+ *  reached it, so a path can be replayed without keeping any Configuration.
+ * @author Damon Gonzalez
+ */
+public interface StateStore extends AutoCloseable {
+    /**
+     * Adds a state to the store if it is not already in it
+     * @param state The state being added
+     * @param parent The index of the state it was generated from, or StateTable.NO_PARENT
+     * @param move The label of the move from the parent, from 0 to 255
+     * @return The index of the new state, or -1 if it was already in the store
+     */
+    int add(long state, int parent, int move);
+    /** Returns the state at an index */
+    long get(int index);
+    /** Returns the index of the parent of the state at an index */
+    int getParent(int index);
+    /** Returns the label of the move that reached the state at an index */
+    int getMove(int index);
+    /** Returns the amount of states in the store */
+    int size();
+    /** Returns the amount of bytes the store has allocated, including space not used yet */
+    long getBytesUsed();
+    /** Returns true if the store ran out of the memory it was given and refused a state, the search must stop */
+    default boolean isFull() { return false; }
+    /** Releases the memory of the store, it can not be used afterwards */
+    @Override
+    default void close() {}
+}
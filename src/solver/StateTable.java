@@ -0,0 +1,186 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The visited set of the solver. Every Configuration that is added gets an index, in the order it was
+ *  added, and remembers the index of the Configuration it was reached from. Lookups use open addressing with
+ *  linear probing over an int array of indices, so no entry objects are created and the hash code of each
+ *  Configuration is only computed once.
+ * @author Damon Gonzalez
+ */
+public class StateTable {
+    /** Marks a state that has no parent, i.e. the start of the search */
+    public static final int NO_PARENT = -1;
+    /** The maximum fraction of slots that may be in use before the slots are rehashed */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /** The Configurations in the order they were added */
+    private Configuration[] states;
+    /** The index of the parent of each state */
+    private int[] parents;
+    /** The cached hash code of each state */
+    private int[] hashes;
+    /** The open addressing slots, each holds a state index plus one, 0 means the slot is empty */
+    private int[] slots;
+    /** The amount of states in this table */
+    private int size = 0;
+    /** The profile that add() charges its time to, or null */
+    private SolverProfile profile = null;
+
+    /**
+     * Public constructor for a StateTable sized for an expected amount of states, the table grows
+     *  when more are added
+     * @param expectedStates The amount of states expected
+     */
+    public StateTable(int expectedStates){
+        int capacity = 16;
+        while(capacity * LOAD_FACTOR < expectedStates) capacity <<= 1;
+        slots = new int[capacity];
+        states = new Configuration[Math.max(16, expectedStates)];
+        parents = new int[states.length];
+        hashes = new int[states.length];
+    }
+
+    /**
+     * Adds a state to the table if an equal state is not already in it
+     * @param config The state being added
+     * @param parent The index of the state that config was generated from, or NO_PARENT
+     * @return The index of the new state, or -1 if an equal state was already in the table
+     */
+    public int add(Configuration config, int parent){
+        int hash = spread(config.hashCode());
+        if(SolverProfile.ENABLED && profile != null) profile.lap(SolverProfile.Phase.HASH_CODE);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while(slots[slot] != 0){
+            int index = slots[slot] - 1;
+            if(hashes[index] == hash && isEqual(index, config)){
+                if(SolverProfile.ENABLED && profile != null) profile.lap(SolverProfile.Phase.TABLE);
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if(size == states.length) growStates();
+        states[size] = config;
+        parents[size] = parent;
+        hashes[size] = hash;
+        slots[slot] = size + 1;
+        size++;
+        if(size > slots.length * LOAD_FACTOR) rehash();
+        if(SolverProfile.ENABLED && profile != null) profile.lap(SolverProfile.Phase.TABLE);
+        return size - 1;
+    }
+
+    /**
+     * Finds the index of a state equal to the one given
+     * @param config The state being searched for
+     * @return The index of the state, or -1 if it is not in the table
+     */
+    public int indexOf(Configuration config){
+        int hash = spread(config.hashCode());
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while(slots[slot] != 0){
+            int index = slots[slot] - 1;
+            if(hashes[index] == hash && states[index].equals(config)) return index;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Public getter for a state in the table
+     * @param index The index of the state
+     * @return The Configuration at that index
+     */
+    public Configuration get(int index) { return states[index]; }
+
+    /**
+     * Public getter for the parent of a state in the table
+     * @param index The index of the state
+     * @return The index of its parent, or NO_PARENT if it is the start
+     */
+    public int getParent(int index) { return parents[index]; }
+
+    /**
+     * Changes the parent of a state in the table, used when a shorter way to reach it is found
+     * @param index The index of the state
+     * @param parent The index of its new parent
+     */
+    public void setParent(int index, int parent) { parents[index] = parent; }
+
+    /** Public getter for the amount of states in the table */
+    public int size() { return size; }
+
+    /**
+     * Follows the parent indices from a state back to the start
+     * @param index The index of the last state of the path
+     * @return The path from the start to the given state, inclusive
+     */
+    public List<Configuration> pathTo(int index){
+        List<Configuration> path = new ArrayList<>();
+        for(int current = index; current != NO_PARENT; current = parents[current])
+            path.add(states[current]);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Makes add() charge its time to a profile, only has an effect when SolverProfile.ENABLED is true
+     * @param profile The profile, or null to stop profiling
+     */
+    void setProfile(SolverProfile profile) { this.profile = profile; }
+
+    /**
+     * Private helper that compares a state in the table to a Configuration, timing the call when profiling
+     * @param index The index of the state in the table
+     * @param config The Configuration
+     * @return True if they are equal
+     */
+    private boolean isEqual(int index, Configuration config){
+        if(!SolverProfile.ENABLED || profile == null) return states[index].equals(config);
+        profile.lap(SolverProfile.Phase.TABLE);
+        boolean equal = states[index].equals(config);
+        profile.lap(SolverProfile.Phase.EQUALS);
+        profile.countEquals(equal);
+        return equal;
+    }
+
+    /**
+     * Private helper that scrambles every bit of a hash code into every other, the finalizer of MurmurHash3.
+     *  Only the low bits pick the slot, and hash codes built from small numbers, like Arrays.hashCode() of a few
+     *  amounts, otherwise form long runs of neighboring slots that linear probing has to walk through.
+     * @param hash The hash code of a Configuration
+     * @return The spread hash code
+     */
+    private static int spread(int hash){
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    /** Private helper that doubles the arrays indexed by state */
+    private void growStates(){
+        int capacity = states.length << 1;
+        states = Arrays.copyOf(states, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+    }
+
+    /** Private helper that doubles the slots and places every state into them again */
+    private void rehash(){
+        slots = new int[slots.length << 1];
+        int mask = slots.length - 1;
+        for(int index = 0; index < size; index++){
+            int slot = hashes[index] & mask;
+            while(slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = index + 1;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package solver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 64 bit Zobrist fingerprints for Configurations. A state is a set of features, like "the tipper is on square 12"
+ *  or "robot B is on square 30", each feature has a random 64 bit key, and the fingerprint of a state is the xor
+ *  of the keys of its features. Since xor undoes itself, a move only has to xor out the keys of the features it
+ *  removes and xor in the ones it adds, so a Configuration can carry its fingerprint and update it in constant
+ *  time instead of hashing its whole board, and two states with different fingerprints are never equal.
+ *  The key of a feature is the SplitMix64 finalizer of its number, which gives every number its own key without
+ *  any table to size for the board. Each puzzle type also counts the collisions its equals() runs into, so the
+ *  quality of the hashing can be checked on real runs; the counts are printed with the SolverProfile report.
+ * @author Damon Gonzalez
+ */
+public class Zobrist {
+    /** The counters of each puzzle type, in the order they were created */
+    private static final Map<String, Zobrist> COUNTERS = new LinkedHashMap<>();
+
+    /** The simple name of the Configuration class these counters are for */
+    private final String puzzle;
+    /** The amount of pairs of states with the same hashCode() but different fingerprints */
+    private final LongAdder hashCollisions = new LongAdder();
+    /** The amount of pairs of different states with the same fingerprint */
+    private final LongAdder fingerprintCollisions = new LongAdder();
+
+    /**
+     * Private constructor for the counters of one puzzle type
+     * @param puzzle The name of the puzzle type
+     */
+    private Zobrist(String puzzle){
+        this.puzzle = puzzle;
+    }
+
+    /**
+     * Gets the counters of a puzzle type, creating them the first time
+     * @param type The Configuration class of the puzzle
+     * @return Its counters
+     */
+    public static synchronized Zobrist of(Class<? extends Configuration> type){
+        return COUNTERS.computeIfAbsent(type.getSimpleName(), Zobrist::new);
+    }
+
+    /**
+     * Gives the key of a feature, different numbers always give different keys
+     * @param feature The number of the feature, chosen by the puzzle
+     * @return Its 64 bit key
+     */
+    public static long key(long feature){
+        long key = (feature + 1) * 0x9E3779B97F4A7C15L;
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    /** Records two states that equals() told apart by their fingerprints although their hash codes were equal */
+    public void countHashCollision() { hashCollisions.increment(); }
+
+    /** Records two different states whose fingerprints were equal */
+    public void countFingerprintCollision() { fingerprintCollisions.increment(); }
+
+    /** Public getter for the amount of hash code collisions */
+    public long getHashCollisions() { return hashCollisions.sum(); }
+
+    /** Public getter for the amount of fingerprint collisions */
+    public long getFingerprintCollisions() { return fingerprintCollisions.sum(); }
+
+    /**
+     * Describes the counters of every puzzle type
+     * @return One line per puzzle type, empty if no type has fingerprints
+     */
+    public static synchronized String report(){
+        StringBuilder report = new StringBuilder();
+        for(Zobrist counters : COUNTERS.values()) report.append(counters).append("\n");
+        return report.toString();
+    }
+
+    @Override
+    public String toString(){
+        return String.format("Fingerprints of %s: %d hash code collisions, %d fingerprint collisions", puzzle,
+                hashCollisions.sum(), fingerprintCollisions.sum());
+    }
+}